@@ -0,0 +1,83 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import static org.weakref.xxh.Util.avalanche;
+
+/**
+ * A Bloom filter whose probes for a key all fall in one 512-bit block (a single cache line).
+ * Keys are expected to be well-mixed 64-bit hashes.
+ */
+final class BlockedBloomFilter
+{
+    private static final int BLOCK_BITS = 512;
+    private static final int BLOCK_LONGS = BLOCK_BITS / Long.SIZE;
+
+    private final long[] bits;
+    private final int blocks;
+    private final int probes;
+
+    BlockedBloomFilter(long expectedEntries, double falsePositiveRate)
+    {
+        if (expectedEntries < 0) {
+            throw new IllegalArgumentException("expectedEntries is negative: " + expectedEntries);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("falsePositiveRate must be in (0, 1): " + falsePositiveRate);
+        }
+
+        double bitsPerEntry = -Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2));
+        // confining probes to one block skews the load per block, so pad the standard sizing
+        long totalBits = (long) Math.ceil(Math.max(1, expectedEntries) * bitsPerEntry * 1.15);
+        blocks = (int) Math.min(Integer.MAX_VALUE / BLOCK_LONGS, (totalBits + BLOCK_BITS - 1) / BLOCK_BITS);
+        bits = new long[blocks * BLOCK_LONGS];
+        probes = (int) Math.max(1, Math.min(16, Math.round(bitsPerEntry * Math.log(2))));
+    }
+
+    void put(long hash)
+    {
+        int block = block(hash);
+        int position = (int) hash;
+        int step = (int) avalanche(hash) | 1;
+        for (int i = 0; i < probes; i++) {
+            bits[block + ((position >>> 6) & (BLOCK_LONGS - 1))] |= 1L << position;
+            position += step;
+        }
+    }
+
+    boolean mightContain(long hash)
+    {
+        int block = block(hash);
+        int position = (int) hash;
+        int step = (int) avalanche(hash) | 1;
+        for (int i = 0; i < probes; i++) {
+            if ((bits[block + ((position >>> 6) & (BLOCK_LONGS - 1))] & (1L << position)) == 0) {
+                return false;
+            }
+            position += step;
+        }
+        return true;
+    }
+
+    long sizeInBytes()
+    {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    private int block(long hash)
+    {
+        // multiply-shift range reduction on the upper half, the lower half picks the bits
+        return (int) (((hash >>> 32) * blocks) >>> 32) * BLOCK_LONGS;
+    }
+}
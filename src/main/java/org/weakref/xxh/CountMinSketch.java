@@ -0,0 +1,186 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Count-Min sketch for estimating how often keys occur, safe for concurrent updates.
+ * <p>
+ * The {@code depth} row indices of a key are derived from its single XXH3-128 hash as
+ * {@code low + row * high} (double hashing), so adding a key costs one hash regardless of depth.
+ * <p>
+ * Counters are striped: each stripe is a full copy of the counter table, and a thread only
+ * writes to the stripe selected by its id. Threads updating the same hot key then rarely touch
+ * the same counter. Estimates sum the stripes, so they cost {@code depth * stripes} reads.
+ */
+public final class CountMinSketch
+{
+    private static final int BATCH = 64;
+
+    private final int depth;
+    private final int width;
+    private final int shift;
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+    private final LongAdder totalCount = new LongAdder();
+
+    public CountMinSketch(int depth, int width)
+    {
+        this(depth, width, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param width counters per row, rounded up to a power of two
+     * @param stripes number of counter tables, rounded up to a power of two
+     */
+    public CountMinSketch(int depth, int width, int stripes)
+    {
+        if (depth <= 0 || depth > 32) {
+            throw new IllegalArgumentException("depth must be in (0, 32]: " + depth);
+        }
+        if (width <= 1 || width > 1 << 25) {
+            throw new IllegalArgumentException("width must be in (1, 2^25]: " + width);
+        }
+        if (stripes <= 0 || stripes > 1024) {
+            throw new IllegalArgumentException("stripes must be in (0, 1024]: " + stripes);
+        }
+
+        this.depth = depth;
+        this.width = Integer.highestOneBit(width - 1) << 1;
+        this.shift = Long.SIZE - Integer.numberOfTrailingZeros(this.width);
+
+        int stripeCount = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new AtomicLongArray(depth * this.width);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    public void add(byte[] key, int offset, int length)
+    {
+        add(key, offset, length, 1);
+    }
+
+    public void add(byte[] key, int offset, int length, long count)
+    {
+        Hash128 hash = Xxh3.hash128(key, offset, length);
+        add(hash.low(), hash.high(), count);
+    }
+
+    /**
+     * Adds one occurrence of each of {@code count} keys stored back to back in {@code slab},
+     * where key i spans {@code [offsets[i], offsets[i + 1])}.
+     */
+    public void add(byte[] slab, int[] offsets, int count)
+    {
+        long[] lows = new long[BATCH];
+        long[] highs = new long[BATCH];
+        for (int start = 0; start < count; start += BATCH) {
+            int batch = Math.min(BATCH, count - start);
+
+            // hash the whole batch first, so the counter updates below are independent of each other
+            for (int i = 0; i < batch; i++) {
+                int key = start + i;
+                Hash128 hash = Xxh3.hash128(slab, offsets[key], offsets[key + 1] - offsets[key]);
+                lows[i] = hash.low();
+                highs[i] = hash.high();
+            }
+
+            AtomicLongArray counters = stripe();
+            for (int i = 0; i < batch; i++) {
+                for (int row = 0; row < depth; row++) {
+                    counters.getAndAdd(index(lows[i], highs[i], row), 1);
+                }
+            }
+            totalCount.add(batch);
+        }
+    }
+
+    public long estimate(byte[] key, int offset, int length)
+    {
+        Hash128 hash = Xxh3.hash128(key, offset, length);
+        return estimate(hash.low(), hash.high());
+    }
+
+    public int depth()
+    {
+        return depth;
+    }
+
+    public int width()
+    {
+        return width;
+    }
+
+    public long totalCount()
+    {
+        return totalCount.sum();
+    }
+
+    public long sizeInBytes()
+    {
+        return (long) stripes.length * depth * width * Long.BYTES;
+    }
+
+    /**
+     * Adds {@code count} to the key's counters in the calling thread's stripe and returns the
+     * smallest of those counters afterward.
+     */
+    long add(long low, long high, long count)
+    {
+        if (count < 0) {
+            throw new IllegalArgumentException("count is negative: " + count);
+        }
+
+        AtomicLongArray counters = stripe();
+        long minimum = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            minimum = Math.min(minimum, counters.getAndAdd(index(low, high, row), count) + count);
+        }
+        totalCount.add(count);
+        return minimum;
+    }
+
+    long estimate(long low, long high)
+    {
+        long minimum = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            int index = index(low, high, row);
+            long sum = 0;
+            for (AtomicLongArray counters : stripes) {
+                sum += counters.get(index);
+            }
+            minimum = Math.min(minimum, sum);
+        }
+        return minimum;
+    }
+
+    int stripeCount()
+    {
+        return stripes.length;
+    }
+
+    private AtomicLongArray stripe()
+    {
+        return stripes[(int) Thread.currentThread().threadId() & stripeMask];
+    }
+
+    private int index(long low, long high, int row)
+    {
+        return row * width + (int) ((low + row * high) >>> shift);
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+/**
+ * A cuckoo filter: an approximate set that, unlike a Bloom filter, supports removal.
+ * <p>
+ * Each key is reduced to a single 64-bit XXH3 hash. The low bits select the primary bucket, the
+ * top 16 bits are the fingerprint, and the alternate bucket is the primary one xor a hash of the
+ * fingerprint, so either bucket can be recovered from the other when entries are relocated.
+ * A bucket holds four 16-bit fingerprints packed into one {@code long} and is searched with
+ * SWAR arithmetic. The false positive rate is about 8 / 2^16 (0.012%).
+ * <p>
+ * Adding a key twice stores two copies, and only keys that were added may be removed; removing
+ * anything else can remove a colliding key and introduce a false negative.
+ */
+public final class CuckooFilter
+{
+    private static final int SLOTS = 4;
+    private static final int MAX_KICKS = 500;
+    private static final double MAX_LOAD_FACTOR = 0.95;
+
+    private static final long LOW_BITS = 0x0001_0001_0001_0001L;
+    private static final long HIGH_BITS = 0x8000_8000_8000_8000L;
+    private static final long SLOT_MASK = 0xFFFF;
+
+    private final long[] buckets;
+    private final int mask;
+    private long size;
+    private long random = 0x9E3779B97F4A7C15L;
+
+    // when a relocation chain gives up, the last evicted fingerprint is kept here so no
+    // previously added key is lost; the filter refuses new keys until it is placed again
+    private boolean hasVictim;
+    private int victimIndex;
+    private long victimFingerprint;
+
+    public CuckooFilter(long expectedEntries)
+    {
+        if (expectedEntries < 0) {
+            throw new IllegalArgumentException("expectedEntries is negative: " + expectedEntries);
+        }
+
+        long required = (long) Math.ceil(Math.max(1, expectedEntries) / (SLOTS * MAX_LOAD_FACTOR));
+        if (required > 1 << 30) {
+            throw new IllegalArgumentException("expectedEntries is too large: " + expectedEntries);
+        }
+        int bucketCount = Math.max(2, Integer.highestOneBit((int) required - 1) << 1);
+        buckets = new long[bucketCount];
+        mask = bucketCount - 1;
+    }
+
+    public boolean add(byte[] key, int offset, int length)
+    {
+        return add(Xxh3.hash64(key, offset, length));
+    }
+
+    public boolean mightContain(byte[] key, int offset, int length)
+    {
+        return mightContain(Xxh3.hash64(key, offset, length));
+    }
+
+    public boolean remove(byte[] key, int offset, int length)
+    {
+        return remove(Xxh3.hash64(key, offset, length));
+    }
+
+    /**
+     * Adds the key with the given hash, returning {@code false} if the filter is full.
+     */
+    public boolean add(long hash)
+    {
+        if (hasVictim) {
+            return false;
+        }
+
+        long fingerprint = fingerprint(hash);
+        int index = index(hash);
+        if (insert(index, fingerprint) || insert(alternate(index, fingerprint), fingerprint)) {
+            size++;
+            return true;
+        }
+
+        if ((random() & 1) == 0) {
+            index = alternate(index, fingerprint);
+        }
+        for (int kick = 0; kick < MAX_KICKS; kick++) {
+            int shift = (int) (random() & (SLOTS - 1)) * 16;
+            long evicted = (buckets[index] >>> shift) & SLOT_MASK;
+            buckets[index] = (buckets[index] & ~(SLOT_MASK << shift)) | (fingerprint << shift);
+
+            fingerprint = evicted;
+            index = alternate(index, fingerprint);
+            if (insert(index, fingerprint)) {
+                size++;
+                return true;
+            }
+        }
+
+        // the new key is in the table, but the last evicted one did not fit anywhere
+        hasVictim = true;
+        victimIndex = index;
+        victimFingerprint = fingerprint;
+        size++;
+        return true;
+    }
+
+    /**
+     * Adds {@code count} hashes and sets {@code added[i]} to whether hash i was added.
+     */
+    public void add(long[] hashes, int count, boolean[] added)
+    {
+        for (int i = 0; i < count; i++) {
+            added[i] = add(hashes[i]);
+        }
+    }
+
+    public boolean mightContain(long hash)
+    {
+        long fingerprint = fingerprint(hash);
+        int index = index(hash);
+        return contains(buckets[index], fingerprint) ||
+                contains(buckets[alternate(index, fingerprint)], fingerprint) ||
+                (hasVictim && victimFingerprint == fingerprint && (victimIndex == index || victimIndex == alternate(index, fingerprint)));
+    }
+
+    /**
+     * Looks up {@code count} hashes at once. Both buckets are always read and combined without
+     * branching, so the loads of neighbouring keys overlap instead of waiting on each other.
+     */
+    public void mightContain(long[] hashes, int count, boolean[] result)
+    {
+        long[] buckets = this.buckets;
+        for (int i = 0; i < count; i++) {
+            long hash = hashes[i];
+            long fingerprint = fingerprint(hash);
+            int index = index(hash);
+            long pattern = fingerprint * LOW_BITS;
+            long matches = zeroSlots(buckets[index] ^ pattern) | zeroSlots(buckets[alternate(index, fingerprint)] ^ pattern);
+            result[i] = matches != 0;
+        }
+
+        if (hasVictim) {
+            for (int i = 0; i < count; i++) {
+                result[i] |= mightContain(hashes[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes one copy of a previously added key, returning {@code false} if it is not present.
+     */
+    public boolean remove(long hash)
+    {
+        long fingerprint = fingerprint(hash);
+        int index = index(hash);
+        int alternate = alternate(index, fingerprint);
+
+        if (hasVictim && victimFingerprint == fingerprint && (victimIndex == index || victimIndex == alternate)) {
+            hasVictim = false;
+            size--;
+            return true;
+        }
+
+        if (!delete(index, fingerprint) && !delete(alternate, fingerprint)) {
+            return false;
+        }
+        size--;
+
+        if (hasVictim) {
+            // room may have opened up for the pending victim
+            long victim = victimFingerprint;
+            if (insert(victimIndex, victim) || insert(alternate(victimIndex, victim), victim)) {
+                hasVictim = false;
+            }
+        }
+        return true;
+    }
+
+    public long size()
+    {
+        return size;
+    }
+
+    public long sizeInBytes()
+    {
+        return (long) buckets.length * Long.BYTES;
+    }
+
+    private boolean insert(int index, long fingerprint)
+    {
+        long bucket = buckets[index];
+        long empty = zeroSlots(bucket);
+        if (empty == 0) {
+            return false;
+        }
+        buckets[index] = bucket | (fingerprint << (Long.numberOfTrailingZeros(empty) & ~15));
+        return true;
+    }
+
+    private boolean delete(int index, long fingerprint)
+    {
+        long bucket = buckets[index];
+        long matches = zeroSlots(bucket ^ (fingerprint * LOW_BITS));
+        if (matches == 0) {
+            return false;
+        }
+        buckets[index] = bucket & ~(SLOT_MASK << (Long.numberOfTrailingZeros(matches) & ~15));
+        return true;
+    }
+
+    private static boolean contains(long bucket, long fingerprint)
+    {
+        return zeroSlots(bucket ^ (fingerprint * LOW_BITS)) != 0;
+    }
+
+    /**
+     * Sets the top bit of each zero 16-bit slot. Slots above a zero one may be flagged too, but the
+     * lowest flagged slot is always a zero one, which is all the callers rely on.
+     */
+    private static long zeroSlots(long bucket)
+    {
+        return (bucket - LOW_BITS) & ~bucket & HIGH_BITS;
+    }
+
+    private int index(long hash)
+    {
+        return (int) hash & mask;
+    }
+
+    private int alternate(int index, long fingerprint)
+    {
+        return (index ^ (int) (fingerprint * 0x5BD1_E995L)) & mask;
+    }
+
+    private static long fingerprint(long hash)
+    {
+        // zero marks an empty slot
+        long fingerprint = hash >>> 48;
+        return fingerprint == 0 ? 1 : fingerprint;
+    }
+
+    private long random()
+    {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return random;
+    }
+}
@@ -0,0 +1,362 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.foreign.ValueLayout.JAVA_LONG;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Remembers which records have been seen, by their 128-bit XXH3 fingerprint. Recent fingerprints
+ * live in an in-memory open-addressing table. When the table fills up it is spilled to a sorted,
+ * memory-mapped run file with its own Bloom filter, so memory use stays bounded.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class DedupIndex
+        implements Closeable
+{
+    private static final double RUN_FALSE_POSITIVE_RATE = 0.01;
+
+    private final Path directory;
+    private final Arena arena = Arena.ofShared();
+    private final List<Run> runs = new ArrayList<>();
+
+    // pairs of (low, high); (0, 0) marks an empty slot and is tracked by containsZero instead
+    private final long[] table;
+    private final int mask;
+    private final int maxSize;
+    private int size;
+    private boolean containsZero;
+
+    private long totalSize;
+    private boolean closed;
+
+    public DedupIndex(Path directory, int memoryEntries)
+    {
+        if (memoryEntries <= 0 || memoryEntries > 1 << 26) {
+            throw new IllegalArgumentException("memoryEntries must be in (0, 2^26]: " + memoryEntries);
+        }
+
+        this.directory = directory;
+
+        // keep the load factor at or below 1/2
+        int capacity = Integer.highestOneBit(memoryEntries) << 2;
+        table = new long[capacity * 2];
+        mask = capacity - 1;
+        maxSize = memoryEntries;
+    }
+
+    public boolean add(byte[] record, int offset, int length)
+    {
+        Hash128 fingerprint = Xxh3.hash128(record, offset, length);
+        return add(fingerprint.low(), fingerprint.high());
+    }
+
+    /**
+     * Adds the fingerprint and returns {@code true} if it was not seen before.
+     */
+    public boolean add(long low, long high)
+    {
+        if (contains(low, high)) {
+            return false;
+        }
+        insert(low, high);
+        return true;
+    }
+
+    /**
+     * Adds {@code count} fingerprints and sets {@code added[i]} to whether fingerprint i was new,
+     * including with respect to earlier fingerprints in the same batch.
+     */
+    public void add(long[] lows, long[] highs, int count, boolean[] added)
+    {
+        boolean[] found = new boolean[count];
+        contains(lows, highs, count, found);
+
+        int runsBefore = runs.size();
+        for (int i = 0; i < count; i++) {
+            if (found[i]) {
+                added[i] = false;
+                continue;
+            }
+
+            // runs spilled while inserting this batch may hold an earlier copy of this key
+            boolean duplicate = false;
+            for (int run = runsBefore; run < runs.size() && !duplicate; run++) {
+                duplicate = runs.get(run).contains(lows[i], highs[i]);
+            }
+            added[i] = !duplicate && insert(lows[i], highs[i]);
+        }
+    }
+
+    public boolean contains(long low, long high)
+    {
+        if (containsInMemory(low, high)) {
+            return true;
+        }
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            if (runs.get(i).contains(low, high)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Looks up {@code count} fingerprints at once. Runs are visited one at a time for the
+     * whole batch, so each run's filter and mapped pages are touched together.
+     */
+    public void contains(long[] lows, long[] highs, int count, boolean[] result)
+    {
+        int[] pending = new int[count];
+        int pendingCount = 0;
+        for (int i = 0; i < count; i++) {
+            result[i] = containsInMemory(lows[i], highs[i]);
+            if (!result[i]) {
+                pending[pendingCount++] = i;
+            }
+        }
+
+        for (int run = runs.size() - 1; run >= 0 && pendingCount > 0; run--) {
+            Run current = runs.get(run);
+            int remaining = 0;
+            for (int i = 0; i < pendingCount; i++) {
+                int index = pending[i];
+                if (current.contains(lows[index], highs[index])) {
+                    result[index] = true;
+                }
+                else {
+                    pending[remaining++] = index;
+                }
+            }
+            pendingCount = remaining;
+        }
+    }
+
+    public long size()
+    {
+        return totalSize;
+    }
+
+    public int runCount()
+    {
+        return runs.size();
+    }
+
+    @Override
+    public void close()
+            throws IOException
+    {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        arena.close();
+        for (Run run : runs) {
+            Files.deleteIfExists(run.path());
+        }
+        runs.clear();
+    }
+
+    private boolean containsInMemory(long low, long high)
+    {
+        if (low == 0 && high == 0) {
+            return containsZero;
+        }
+
+        int slot = (int) low & mask;
+        while (true) {
+            long slotLow = table[2 * slot];
+            long slotHigh = table[2 * slot + 1];
+            if (slotLow == low && slotHigh == high) {
+                return true;
+            }
+            if (slotLow == 0 && slotHigh == 0) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private boolean insert(long low, long high)
+    {
+        if (low == 0 && high == 0) {
+            if (containsZero) {
+                return false;
+            }
+            containsZero = true;
+        }
+        else {
+            int slot = (int) low & mask;
+            while (true) {
+                long slotLow = table[2 * slot];
+                long slotHigh = table[2 * slot + 1];
+                if (slotLow == low && slotHigh == high) {
+                    return false;
+                }
+                if (slotLow == 0 && slotHigh == 0) {
+                    table[2 * slot] = low;
+                    table[2 * slot + 1] = high;
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        size++;
+        totalSize++;
+        if (size == maxSize) {
+            spill();
+        }
+        return true;
+    }
+
+    private void spill()
+    {
+        // runs are stored as (high, low) pairs so they sort by the high half first
+        long[] entries = new long[size * 2];
+        int count = 0;
+        if (containsZero) {
+            count++;
+        }
+        for (int slot = 0; slot <= mask; slot++) {
+            long low = table[2 * slot];
+            long high = table[2 * slot + 1];
+            if (low != 0 || high != 0) {
+                entries[2 * count] = high;
+                entries[2 * count + 1] = low;
+                count++;
+            }
+        }
+        sortPairs(entries, 0, count - 1);
+
+        BlockedBloomFilter filter = new BlockedBloomFilter(count, RUN_FALSE_POSITIVE_RATE);
+        for (int i = 0; i < count; i++) {
+            filter.put(entries[2 * i]);
+        }
+
+        try {
+            Path path = Files.createTempFile(directory, "dedup-run-", ".bin");
+            MemorySegment data;
+            try (FileChannel channel = FileChannel.open(path, READ, WRITE, TRUNCATE_EXISTING)) {
+                data = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) count * 2 * Long.BYTES, arena);
+            }
+            MemorySegment.copy(entries, 0, data, JAVA_LONG, 0, count * 2);
+            runs.add(new Run(path, data, count, filter));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        Arrays.fill(table, 0);
+        size = 0;
+        containsZero = false;
+    }
+
+    private static void sortPairs(long[] pairs, int from, int to)
+    {
+        while (from < to) {
+            int middle = (from + to) >>> 1;
+            long pivotHigh = pairs[2 * middle];
+            long pivotLow = pairs[2 * middle + 1];
+
+            int i = from;
+            int j = to;
+            while (i <= j) {
+                while (compare(pairs, i, pivotHigh, pivotLow) < 0) {
+                    i++;
+                }
+                while (compare(pairs, j, pivotHigh, pivotLow) > 0) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(pairs, i++, j--);
+                }
+            }
+
+            // recurse into the smaller half to bound the stack depth
+            if (j - from < to - i) {
+                sortPairs(pairs, from, j);
+                from = i;
+            }
+            else {
+                sortPairs(pairs, i, to);
+                to = j;
+            }
+        }
+    }
+
+    private static int compare(long[] pairs, int index, long high, long low)
+    {
+        int result = Long.compare(pairs[2 * index], high);
+        return result != 0 ? result : Long.compare(pairs[2 * index + 1], low);
+    }
+
+    private static void swap(long[] pairs, int a, int b)
+    {
+        long high = pairs[2 * a];
+        long low = pairs[2 * a + 1];
+        pairs[2 * a] = pairs[2 * b];
+        pairs[2 * a + 1] = pairs[2 * b + 1];
+        pairs[2 * b] = high;
+        pairs[2 * b + 1] = low;
+    }
+
+    private record Run(Path path, MemorySegment data, long count, BlockedBloomFilter filter)
+    {
+        boolean contains(long low, long high)
+        {
+            if (!filter.mightContain(high)) {
+                return false;
+            }
+
+            long from = 0;
+            long to = count - 1;
+            while (from <= to) {
+                long middle = (from + to) >>> 1;
+                long middleHigh = data.getAtIndex(JAVA_LONG, 2 * middle);
+                int result = Long.compare(middleHigh, high);
+                if (result == 0) {
+                    result = Long.compare(data.getAtIndex(JAVA_LONG, 2 * middle + 1), low);
+                }
+
+                if (result < 0) {
+                    from = middle + 1;
+                }
+                else if (result > 0) {
+                    to = middle - 1;
+                }
+                else {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
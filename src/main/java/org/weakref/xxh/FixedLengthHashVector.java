@@ -0,0 +1,155 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import jdk.incubator.vector.LongVector;
+
+import static jdk.incubator.vector.LongVector.SPECIES_PREFERRED;
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.REVERSE_BYTES;
+import static jdk.incubator.vector.VectorOperators.XOR;
+import static org.weakref.xxh.Constants.PRIME64_1;
+import static org.weakref.xxh.Constants.PRIME_MX1;
+import static org.weakref.xxh.Util.readLong;
+
+/**
+ * Hashes many keys of the same length at once, one key per vector lane. Keys are transposed
+ * into lane-major scratch arrays and then run through the 9-16 or 17-128 byte kernel with
+ * lane-wise arithmetic.
+ */
+class FixedLengthHashVector
+{
+    private static final int LANES = SPECIES_PREFERRED.length();
+    private static final long LOW_MASK = 0xFFFF_FFFFL;
+
+    private static final long[] SECRET_LONGS = Secret.DEFAULT.longs();
+    private static final long SECRET_9TO16_LOW = SECRET_LONGS[24] ^ SECRET_LONGS[32];
+    private static final long SECRET_9TO16_HIGH = SECRET_LONGS[40] ^ SECRET_LONGS[48];
+
+    public static void hash(byte[] slab, int keyLength, int count, long[] result)
+    {
+        int vectorCount = keyLength > 8 && keyLength <= 128 ? count - count % LANES : 0;
+
+        if (vectorCount > 0) {
+            if (keyLength <= 16) {
+                hash9to16(slab, keyLength, vectorCount, result);
+            }
+            else {
+                hash17to128(slab, keyLength, vectorCount, result);
+            }
+        }
+
+        for (int i = vectorCount; i < count; i++) {
+            result[i] = Xxh3.hash64(slab, i * keyLength, keyLength);
+        }
+    }
+
+    private static void hash9to16(byte[] slab, int keyLength, int count, long[] result)
+    {
+        long[] lows = new long[LANES];
+        long[] highs = new long[LANES];
+
+        for (int key = 0; key < count; key += LANES) {
+            for (int lane = 0; lane < LANES; lane++) {
+                int offset = (key + lane) * keyLength;
+                lows[lane] = readLong(slab, offset);
+                highs[lane] = readLong(slab, offset + keyLength - 8);
+            }
+
+            LongVector low = LongVector.fromArray(SPECIES_PREFERRED, lows, 0).lanewise(XOR, SECRET_9TO16_LOW);
+            LongVector high = LongVector.fromArray(SPECIES_PREFERRED, highs, 0).lanewise(XOR, SECRET_9TO16_HIGH);
+
+            LongVector accumulator = low.lanewise(REVERSE_BYTES)
+                    .add(high)
+                    .add(keyLength)
+                    .add(multiplyAndFold(low, high));
+
+            avalanche(accumulator).intoArray(result, key);
+        }
+    }
+
+    private static void hash17to128(byte[] slab, int keyLength, int count, long[] result)
+    {
+        // each round mixes 16 bytes from the front and 16 from the back of the key
+        int rounds = (keyLength - 1) / 32 + 1;
+        int[] wordOffsets = new int[rounds * 4];
+        for (int i = 0; i < rounds; i++) {
+            wordOffsets[4 * i] = 16 * i;
+            wordOffsets[4 * i + 1] = 16 * i + 8;
+            wordOffsets[4 * i + 2] = keyLength - 16 * (i + 1);
+            wordOffsets[4 * i + 3] = keyLength - 16 * (i + 1) + 8;
+        }
+
+        long[] words = new long[wordOffsets.length * LANES];
+        for (int key = 0; key < count; key += LANES) {
+            for (int lane = 0; lane < LANES; lane++) {
+                int offset = (key + lane) * keyLength;
+                for (int word = 0; word < wordOffsets.length; word++) {
+                    words[word * LANES + lane] = readLong(slab, offset + wordOffsets[word]);
+                }
+            }
+
+            LongVector accumulator = LongVector.broadcast(SPECIES_PREFERRED, keyLength * PRIME64_1);
+            for (int word = 0; word < wordOffsets.length; word += 2) {
+                // word pairs line up with consecutive 16-byte chunks of the secret
+                LongVector first = LongVector.fromArray(SPECIES_PREFERRED, words, word * LANES)
+                        .lanewise(XOR, SECRET_LONGS[8 * word]);
+                LongVector second = LongVector.fromArray(SPECIES_PREFERRED, words, (word + 1) * LANES)
+                        .lanewise(XOR, SECRET_LONGS[8 * word + 8]);
+                accumulator = accumulator.add(multiplyAndFold(first, second));
+            }
+
+            avalanche(accumulator).intoArray(result, key);
+        }
+    }
+
+    /**
+     * Lane-wise {@link Util#multiplyAndFold}. The high half of the 128-bit product is built from
+     * 32x32-bit partial products, since there is no vector equivalent of
+     * {@link Math#unsignedMultiplyHigh}.
+     */
+    static LongVector multiplyAndFold(LongVector a, LongVector b)
+    {
+        LongVector aLow = a.and(LOW_MASK);
+        LongVector aHigh = a.lanewise(LSHR, 32);
+        LongVector bLow = b.and(LOW_MASK);
+        LongVector bHigh = b.lanewise(LSHR, 32);
+
+        LongVector lowLow = aLow.mul(bLow);
+        LongVector lowHigh = aLow.mul(bHigh);
+        LongVector highLow = aHigh.mul(bLow);
+        LongVector highHigh = aHigh.mul(bHigh);
+
+        LongVector cross = lowLow.lanewise(LSHR, 32)
+                .add(lowHigh.and(LOW_MASK))
+                .add(highLow.and(LOW_MASK));
+
+        LongVector productHigh = highHigh
+                .add(lowHigh.lanewise(LSHR, 32))
+                .add(highLow.lanewise(LSHR, 32))
+                .add(cross.lanewise(LSHR, 32));
+
+        LongVector productLow = cross.lanewise(LSHL, 32).or(lowLow.and(LOW_MASK));
+
+        return productLow.lanewise(XOR, productHigh);
+    }
+
+    static LongVector avalanche(LongVector value)
+    {
+        value = value.lanewise(XOR, value.lanewise(LSHR, 37));
+        value = value.mul(PRIME_MX1);
+        return value.lanewise(XOR, value.lanewise(LSHR, 32));
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, direct-mapped memo of {@link Xxh3#hash64} results keyed by the identity of the
+ * input array and the slice bounds. It is meant for hot inputs that are hashed repeatedly, such as
+ * dictionary entries or partition keys, and assumes their contents never change once hashed.
+ * <p>
+ * The cache is safe for concurrent use. Colliding slots simply overwrite each other, so at most
+ * {@code capacity} arrays are retained.
+ */
+public final class HashCache
+{
+    // timing every miss costs about as much as hashing a short key, so only a sample is timed
+    private static final int TIMING_SAMPLE_RATE = 64;
+
+    private final Entry[] table;
+    private final int mask;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder hitBytes = new LongAdder();
+    private final LongAdder timedBytes = new LongAdder();
+    private final LongAdder timedNanos = new LongAdder();
+
+    public HashCache(int capacity)
+    {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be in (0, 2^30]: " + capacity);
+        }
+
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        table = new Entry[size];
+        mask = size - 1;
+    }
+
+    public long hash64(byte[] data, int offset, int length)
+    {
+        int index = slot(data, offset, length);
+
+        // entries are immutable, so a racy read sees either null or a fully constructed entry
+        Entry entry = table[index];
+        if (entry != null && entry.data == data && entry.offset == offset && entry.length == length) {
+            hits.increment();
+            hitBytes.add(length);
+            return entry.hash;
+        }
+
+        long hash;
+        if (ThreadLocalRandom.current().nextInt(TIMING_SAMPLE_RATE) == 0) {
+            long start = System.nanoTime();
+            hash = Xxh3.hash64(data, offset, length);
+            timedNanos.add(System.nanoTime() - start);
+            timedBytes.add(length);
+        }
+        else {
+            hash = Xxh3.hash64(data, offset, length);
+        }
+        misses.increment();
+        if (entry != null) {
+            evictions.increment();
+        }
+
+        table[index] = new Entry(data, offset, length, hash);
+        return hash;
+    }
+
+    public Stats stats()
+    {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long savedBytes = hitBytes.sum();
+        long sampledBytes = timedBytes.sum();
+
+        // extrapolate the time saved from the observed cost per byte of sampled misses
+        long savedNanos = 0;
+        if (sampledBytes > 0) {
+            savedNanos = (long) (savedBytes * ((double) timedNanos.sum() / sampledBytes));
+        }
+        return new Stats(hitCount, missCount, evictions.sum(), savedBytes, savedNanos);
+    }
+
+    private int slot(byte[] data, int offset, int length)
+    {
+        long key = ((long) System.identityHashCode(data) << 32) ^ ((long) offset << 16) ^ length;
+        return (int) Util.avalanche(key) & mask;
+    }
+
+    private record Entry(byte[] data, int offset, int length, long hash) {}
+
+    public record Stats(long hits, long misses, long evictions, long bytesSaved, long estimatedNanosSaved)
+    {
+        public double hitRate()
+        {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.lang.foreign.MemorySegment;
+import java.util.function.ToLongFunction;
+
+/**
+ * An immutable slice of bytes that computes its {@link Xxh3#hash64} lazily and caches it.
+ * The underlying bytes must not be modified after the slice is created.
+ */
+public final class HashedSlice
+{
+    private final MemorySegment segment;
+    private final ToLongFunction<MemorySegment> hashFunction;
+
+    // same benign-race idiom as String.hashCode: each field only ever holds a correct value
+    private long hash;
+    private boolean hashIsZero;
+
+    private HashedSlice(MemorySegment segment)
+    {
+        this(segment, Xxh3::hash64);
+    }
+
+    HashedSlice(MemorySegment segment, ToLongFunction<MemorySegment> hashFunction)
+    {
+        this.segment = segment;
+        this.hashFunction = hashFunction;
+    }
+
+    public static HashedSlice wrap(byte[] data)
+    {
+        return wrap(data, 0, data.length);
+    }
+
+    public static HashedSlice wrap(byte[] data, int offset, int length)
+    {
+        return new HashedSlice(MemorySegment.ofArray(data).asSlice(offset, length));
+    }
+
+    public static HashedSlice wrap(MemorySegment segment)
+    {
+        return new HashedSlice(segment);
+    }
+
+    public MemorySegment segment()
+    {
+        return segment.asReadOnly();
+    }
+
+    public long length()
+    {
+        return segment.byteSize();
+    }
+
+    public long hash64()
+    {
+        long result = hash;
+        if (result == 0 && !hashIsZero) {
+            result = hashFunction.applyAsLong(segment);
+            if (result == 0) {
+                hashIsZero = true;
+            }
+            else {
+                hash = result;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Long.hashCode(hash64());
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof HashedSlice other)) {
+            return false;
+        }
+
+        long length = segment.byteSize();
+        if (length != other.segment.byteSize() || hash64() != other.hash64()) {
+            return false;
+        }
+        return MemorySegment.mismatch(segment, 0, length, other.segment, 0, length) == -1;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "HashedSlice{length=" + segment.byteSize() + ", hash=" + Long.toHexString(hash64()) + "}";
+    }
+}
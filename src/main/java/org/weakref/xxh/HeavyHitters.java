@@ -0,0 +1,169 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tracks the {@code k} most frequent keys using a {@link CountMinSketch} for counting and a small
+ * candidate table for the current leaders. Safe for concurrent use.
+ * <p>
+ * Counts of keys already in the table are raised without locking. Only keys that may displace
+ * the smallest candidate take a lock. To keep the sketch estimate off the fast path, a key is
+ * considered only once its counters in the calling thread's stripe reach the admission threshold
+ * divided by the number of stripes. Reported counts are Count-Min estimates, so they may
+ * overcount but never undercount.
+ */
+public final class HeavyHitters
+{
+    private static final int BATCH = 64;
+
+    private final int k;
+    private final CountMinSketch sketch;
+    private final ConcurrentHashMap<Long, Candidate> candidates;
+
+    // the smallest candidate count once the table is full; lower estimates cannot be admitted
+    private volatile long threshold;
+
+    public record HeavyHitter(byte[] key, long count) {}
+
+    private record Candidate(byte[] key, AtomicLong count) {}
+
+    public HeavyHitters(int k, int depth, int width)
+    {
+        this(k, new CountMinSketch(depth, width));
+    }
+
+    public HeavyHitters(int k, CountMinSketch sketch)
+    {
+        if (k <= 0) {
+            throw new IllegalArgumentException("k must be positive: " + k);
+        }
+
+        this.k = k;
+        this.sketch = sketch;
+        this.candidates = new ConcurrentHashMap<>(2 * k);
+    }
+
+    public void add(byte[] key, int offset, int length)
+    {
+        add(key, offset, length, 1);
+    }
+
+    public void add(byte[] key, int offset, int length, long count)
+    {
+        Hash128 hash = Xxh3.hash128(key, offset, length);
+        add(hash.low(), hash.high(), count, key, offset, length);
+    }
+
+    /**
+     * Adds one occurrence of each of {@code count} keys stored back to back in {@code slab},
+     * where key i spans {@code [offsets[i], offsets[i + 1])}.
+     */
+    public void add(byte[] slab, int[] offsets, int count)
+    {
+        long[] lows = new long[BATCH];
+        long[] highs = new long[BATCH];
+        for (int start = 0; start < count; start += BATCH) {
+            int batch = Math.min(BATCH, count - start);
+            for (int i = 0; i < batch; i++) {
+                int key = start + i;
+                Hash128 hash = Xxh3.hash128(slab, offsets[key], offsets[key + 1] - offsets[key]);
+                lows[i] = hash.low();
+                highs[i] = hash.high();
+            }
+
+            for (int i = 0; i < batch; i++) {
+                int key = start + i;
+                add(lows[i], highs[i], 1, slab, offsets[key], offsets[key + 1] - offsets[key]);
+            }
+        }
+    }
+
+    public long estimate(byte[] key, int offset, int length)
+    {
+        return sketch.estimate(key, offset, length);
+    }
+
+    /**
+     * Returns the current leaders, most frequent first.
+     */
+    public List<HeavyHitter> topK()
+    {
+        return candidates.values().stream()
+                .map(candidate -> new HeavyHitter(candidate.key().clone(), candidate.count().get()))
+                .sorted(Comparator.comparingLong(HeavyHitter::count).reversed())
+                .limit(k)
+                .toList();
+    }
+
+    public CountMinSketch sketch()
+    {
+        return sketch;
+    }
+
+    private void add(long low, long high, long count, byte[] key, int offset, int length)
+    {
+        long stripeMinimum = sketch.add(low, high, count);
+        if (stripeMinimum < threshold / sketch.stripeCount()) {
+            return;
+        }
+
+        long estimate = sketch.estimate(low, high);
+        Candidate existing = candidates.get(low);
+        if (existing != null) {
+            existing.count().accumulateAndGet(estimate, Math::max);
+            return;
+        }
+        if (estimate <= threshold) {
+            return;
+        }
+
+        synchronized (this) {
+            existing = candidates.get(low);
+            if (existing != null) {
+                existing.count().accumulateAndGet(estimate, Math::max);
+                return;
+            }
+
+            Candidate candidate = new Candidate(Arrays.copyOfRange(key, offset, offset + length), new AtomicLong(estimate));
+            if (candidates.size() < k) {
+                candidates.put(low, candidate);
+                if (candidates.size() == k) {
+                    threshold = smallest().getValue().count().get();
+                }
+                return;
+            }
+
+            Map.Entry<Long, Candidate> smallest = smallest();
+            if (estimate > smallest.getValue().count().get()) {
+                candidates.remove(smallest.getKey());
+                candidates.put(low, candidate);
+                threshold = smallest().getValue().count().get();
+            }
+        }
+    }
+
+    private Map.Entry<Long, Candidate> smallest()
+    {
+        return candidates.entrySet().stream()
+                .min(Comparator.comparingLong(entry -> entry.getValue().count().get()))
+                .orElseThrow();
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+/**
+ * Jump consistent hash (Lamping and Veach, "A Fast, Minimal Memory, Consistent Hash Algorithm").
+ * The input is expected to be a well-mixed 64-bit hash such as the result of {@link Xxh3#hash64}.
+ */
+public class JumpHash
+{
+    public static int bucket(long hash, int buckets)
+    {
+        if (buckets <= 0) {
+            throw new IllegalArgumentException("buckets must be positive: " + buckets);
+        }
+
+        long candidate = -1;
+        long next = 0;
+        while (next < buckets) {
+            candidate = next;
+            hash = hash * 2862933555777941757L + 1;
+            next = (long) ((candidate + 1) * ((double) (1L << 31) / (double) ((hash >>> 33) + 1)));
+        }
+        return (int) candidate;
+    }
+
+    public static int bucket(byte[] key, int offset, int length, int buckets)
+    {
+        return bucket(Xxh3.hash64(key, offset, length), buckets);
+    }
+
+    public static void bucket(long[] hashes, int buckets, int[] result)
+    {
+        if (result.length < hashes.length) {
+            throw new IllegalArgumentException("result array too small: " + result.length + " < " + hashes.length);
+        }
+
+        for (int i = 0; i < hashes.length; i++) {
+            result[i] = bucket(hashes[i], buckets);
+        }
+    }
+}
@@ -14,9 +14,17 @@
 package org.weakref.xxh;
 
 import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.IntVector;
 import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.ShortVector;
 import jdk.incubator.vector.VectorShuffle;
+import jdk.incubator.vector.VectorSpecies;
 
+import java.lang.foreign.MemorySegment;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
 import static jdk.incubator.vector.LongVector.SPECIES_PREFERRED;
 import static jdk.incubator.vector.VectorOperators.LSHR;
 import static jdk.incubator.vector.VectorOperators.XOR;
@@ -28,76 +36,347 @@ import static org.weakref.xxh.Constants.PRIME64_2;
 import static org.weakref.xxh.Constants.PRIME64_3;
 import static org.weakref.xxh.Constants.PRIME64_4;
 import static org.weakref.xxh.Constants.PRIME64_5;
-import static org.weakref.xxh.Constants.SECRET;
-import static org.weakref.xxh.Constants.SECRET_CONSUME_RATE;
-import static org.weakref.xxh.Constants.SECRET_LAST_ACCUMULATOR_START;
 import static org.weakref.xxh.Constants.SECRET_MERGE_ACCUMULATORS_START;
 import static org.weakref.xxh.Constants.STRIPE_LENGTH;
 import static org.weakref.xxh.Util.avalanche;
 import static org.weakref.xxh.Util.mix;
-import static org.weakref.xxh.Util.readLong;
 
 class LongHashVector
 {
     private static final VectorShuffle<Byte> BYTE_SHUFFLE = VectorShuffle.fromOp(ByteVector.SPECIES_PREFERRED, i -> (i / 8 ^ 1) * 8 + i % 8);
 
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = SPECIES_PREFERRED.withLanes(double.class);
+    private static final VectorSpecies<Integer> INT_SPECIES = SPECIES_PREFERRED.withLanes(int.class);
+    private static final VectorSpecies<Short> SHORT_SPECIES = SPECIES_PREFERRED.withLanes(short.class);
+
+    private static final int STRIPE_LONGS = STRIPE_LENGTH / Long.BYTES;
+    private static final int STRIPE_INTS = STRIPE_LENGTH / Integer.BYTES;
+    private static final int STRIPE_CHARS = STRIPE_LENGTH / Character.BYTES;
+
     public static long hash(byte[] input, int offset, int length)
+    {
+        return hash(Secret.DEFAULT, input, offset, length);
+    }
+
+    static long hash(Secret secret, byte[] input, int offset, int length)
+    {
+        return merge(secret, length, accumulators(secret, input, offset, length));
+    }
+
+    static Hash128 hash128(Secret secret, byte[] input, int offset, int length)
+    {
+        long[] accumulators = accumulators(secret, input, offset, length);
+        return new Hash128(
+                merge(secret, length, accumulators),
+                merge(secret, accumulators, secret.length() - STRIPE_LENGTH - SECRET_MERGE_ACCUMULATORS_START, ~(length * PRIME64_2)));
+    }
+
+    private static long[] accumulators(Secret secret, byte[] input, int offset, int length)
     {
         long[] accumulators = new long[] {PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+        long[] secretStripes = secret.stripes();
 
-        int stripesPerBlock = (SECRET.length - STRIPE_LENGTH) / SECRET_CONSUME_RATE;
+        int stripesPerBlock = secret.stripesPerBlock();
         int blockLength = STRIPE_LENGTH * stripesPerBlock;
         int blockCount = (length - 1) / blockLength;
 
         for (int block = 0; block < blockCount; block++) {
             for (int stripe = 0; stripe < stripesPerBlock; stripe++) {
-                accumulate(accumulators, input, offset + block * blockLength + stripe * STRIPE_LENGTH, stripe * SECRET_CONSUME_RATE);
+                accumulate(accumulators, input, offset + block * blockLength + stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripe));
             }
 
-            scramble(accumulators);
+            scramble(accumulators, secretStripes, secret.scrambleIndex());
         }
 
         int stripeCount = ((length - 1) - (blockLength * blockCount)) / STRIPE_LENGTH;
         for (int stripe = 0; stripe < stripeCount; stripe++) {
-            accumulate(accumulators, input, offset + blockCount * blockLength + stripe * STRIPE_LENGTH, stripe * SECRET_CONSUME_RATE);
+            accumulate(accumulators, input, offset + blockCount * blockLength + stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripe));
+        }
+
+        accumulate(accumulators, input, offset + length - STRIPE_LENGTH, secretStripes, secret.lastStripeIndex());
+
+        return accumulators;
+    }
+
+    static long hash(Secret secret, MemorySegment input, long offset, long length)
+    {
+        return merge(secret, length, accumulators(secret, input, offset, length));
+    }
+
+    static Hash128 hash128(Secret secret, MemorySegment input, long offset, long length)
+    {
+        long[] accumulators = accumulators(secret, input, offset, length);
+        return new Hash128(
+                merge(secret, length, accumulators),
+                merge(secret, accumulators, secret.length() - STRIPE_LENGTH - SECRET_MERGE_ACCUMULATORS_START, ~(length * PRIME64_2)));
+    }
+
+    /**
+     * Same as the byte[] variant, but with long block arithmetic for inputs beyond 2 GB. Only
+     * the outer loop over blocks uses a long counter, the stripe loops stay int counted loops.
+     */
+    private static long[] accumulators(Secret secret, MemorySegment input, long offset, long length)
+    {
+        if (!input.isNative()) {
+            return heapAccumulators(secret, input, offset, length);
+        }
+
+        long[] accumulators = new long[] {PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+        long[] secretStripes = secret.stripes();
+
+        int stripesPerBlock = secret.stripesPerBlock();
+        int blockLength = STRIPE_LENGTH * stripesPerBlock;
+        long blockCount = (length - 1) / blockLength;
+
+        for (long block = 0; block < blockCount; block++) {
+            long blockOffset = offset + block * blockLength;
+            for (int stripe = 0; stripe < stripesPerBlock; stripe++) {
+                accumulate(accumulators, input, blockOffset + stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripe));
+            }
+
+            scramble(accumulators, secretStripes, secret.scrambleIndex());
+        }
+
+        long blockOffset = offset + blockCount * blockLength;
+        int stripeCount = (int) (((length - 1) - (blockLength * blockCount)) / STRIPE_LENGTH);
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            accumulate(accumulators, input, blockOffset + stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripe));
+        }
+
+        accumulate(accumulators, input, offset + length - STRIPE_LENGTH, secretStripes, secret.lastStripeIndex());
+
+        return accumulators;
+    }
+
+    /**
+     * The vector API only loads from heap segments backed by a byte[] that is not read-only,
+     * so other heap segments are copied one block at a time and hashed with the array kernel.
+     */
+    private static long[] heapAccumulators(Secret secret, MemorySegment input, long offset, long length)
+    {
+        long[] accumulators = new long[] {PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+        long[] secretStripes = secret.stripes();
+
+        int stripesPerBlock = secret.stripesPerBlock();
+        int blockLength = STRIPE_LENGTH * stripesPerBlock;
+        long blockCount = (length - 1) / blockLength;
+
+        byte[] block = new byte[blockLength];
+        for (long blockIndex = 0; blockIndex < blockCount; blockIndex++) {
+            MemorySegment.copy(input, JAVA_BYTE, offset + blockIndex * blockLength, block, 0, blockLength);
+            for (int stripe = 0; stripe < stripesPerBlock; stripe++) {
+                accumulate(accumulators, block, stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripe));
+            }
+
+            scramble(accumulators, secretStripes, secret.scrambleIndex());
+        }
+
+        int remaining = (int) (length - blockLength * blockCount);
+        MemorySegment.copy(input, JAVA_BYTE, offset + blockCount * blockLength, block, 0, remaining);
+        int stripeCount = (remaining - 1) / STRIPE_LENGTH;
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            accumulate(accumulators, block, stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripe));
+        }
+
+        // the last stripe may reach back into the previous block
+        MemorySegment.copy(input, JAVA_BYTE, offset + length - STRIPE_LENGTH, block, 0, STRIPE_LENGTH);
+        accumulate(accumulators, block, 0, secretStripes, secret.lastStripeIndex());
+
+        return accumulators;
+    }
+
+    /**
+     * Hashes the little-endian byte image of {@code count} longs. Stripes are loaded straight
+     * from the array, so no byte copy is needed.
+     */
+    static long hash(Secret secret, long[] values, int offset, int count)
+    {
+        long[] accumulators = new long[] {PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+        long[] secretStripes = secret.stripes();
+
+        int stripesPerBlock = secret.stripesPerBlock();
+        int blockLongs = STRIPE_LONGS * stripesPerBlock;
+        int blockCount = (count - 1) / blockLongs;
+
+        for (int block = 0; block < blockCount; block++) {
+            for (int stripe = 0; stripe < stripesPerBlock; stripe++) {
+                accumulate(accumulators, values, offset + block * blockLongs + stripe * STRIPE_LONGS, secretStripes, Secret.stripeIndex(stripe));
+            }
+
+            scramble(accumulators, secretStripes, secret.scrambleIndex());
+        }
+
+        int stripeCount = ((count - 1) - (blockLongs * blockCount)) / STRIPE_LONGS;
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            accumulate(accumulators, values, offset + blockCount * blockLongs + stripe * STRIPE_LONGS, secretStripes, Secret.stripeIndex(stripe));
+        }
+
+        accumulate(accumulators, values, offset + count - STRIPE_LONGS, secretStripes, secret.lastStripeIndex());
+
+        return merge(secret, (long) count * Long.BYTES, accumulators);
+    }
+
+    static long hash(Secret secret, double[] values, int offset, int count)
+    {
+        long[] accumulators = new long[] {PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+        long[] secretStripes = secret.stripes();
+
+        int stripesPerBlock = secret.stripesPerBlock();
+        int blockLongs = STRIPE_LONGS * stripesPerBlock;
+        int blockCount = (count - 1) / blockLongs;
+
+        for (int block = 0; block < blockCount; block++) {
+            for (int stripe = 0; stripe < stripesPerBlock; stripe++) {
+                accumulate(accumulators, values, offset + block * blockLongs + stripe * STRIPE_LONGS, secretStripes, Secret.stripeIndex(stripe));
+            }
+
+            scramble(accumulators, secretStripes, secret.scrambleIndex());
+        }
+
+        int stripeCount = ((count - 1) - (blockLongs * blockCount)) / STRIPE_LONGS;
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            accumulate(accumulators, values, offset + blockCount * blockLongs + stripe * STRIPE_LONGS, secretStripes, Secret.stripeIndex(stripe));
+        }
+
+        accumulate(accumulators, values, offset + count - STRIPE_LONGS, secretStripes, secret.lastStripeIndex());
+
+        return merge(secret, (long) count * Double.BYTES, accumulators);
+    }
+
+    /**
+     * Hashes the little-endian byte image of {@code count} ints. Pairs of ints are combined
+     * into the long lanes the kernel works on, low int first.
+     */
+    static long hash(Secret secret, int[] values, int offset, int count)
+    {
+        long[] accumulators = new long[] {PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+        long[] secretStripes = secret.stripes();
+
+        int stripesPerBlock = secret.stripesPerBlock();
+        int blockInts = STRIPE_INTS * stripesPerBlock;
+        int blockCount = (count - 1) / blockInts;
+
+        for (int block = 0; block < blockCount; block++) {
+            for (int stripe = 0; stripe < stripesPerBlock; stripe++) {
+                accumulate(accumulators, values, offset + block * blockInts + stripe * STRIPE_INTS, secretStripes, Secret.stripeIndex(stripe));
+            }
+
+            scramble(accumulators, secretStripes, secret.scrambleIndex());
+        }
+
+        int stripeCount = ((count - 1) - (blockInts * blockCount)) / STRIPE_INTS;
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            accumulate(accumulators, values, offset + blockCount * blockInts + stripe * STRIPE_INTS, secretStripes, Secret.stripeIndex(stripe));
         }
 
-        accumulate(accumulators, input, offset + length - STRIPE_LENGTH, SECRET.length - STRIPE_LENGTH - SECRET_LAST_ACCUMULATOR_START);
+        accumulate(accumulators, values, offset + count - STRIPE_INTS, secretStripes, secret.lastStripeIndex());
 
-        return merge(length, accumulators);
+        return merge(secret, (long) count * Integer.BYTES, accumulators);
     }
 
-    static void accumulate(long[] accumulators, byte[] input, int offset, int secretOffset)
+    /**
+     * Hashes the little-endian byte image of {@code count} chars, four to each long lane.
+     */
+    static long hash(Secret secret, char[] values, int offset, int count)
+    {
+        long[] accumulators = new long[] {PRIME32_3, PRIME64_1, PRIME64_2, PRIME64_3, PRIME64_4, PRIME32_2, PRIME64_5, PRIME32_1};
+        long[] secretStripes = secret.stripes();
+
+        int stripesPerBlock = secret.stripesPerBlock();
+        int blockChars = STRIPE_CHARS * stripesPerBlock;
+        int blockCount = (count - 1) / blockChars;
+
+        for (int block = 0; block < blockCount; block++) {
+            for (int stripe = 0; stripe < stripesPerBlock; stripe++) {
+                accumulate(accumulators, values, offset + block * blockChars + stripe * STRIPE_CHARS, secretStripes, Secret.stripeIndex(stripe));
+            }
+
+            scramble(accumulators, secretStripes, secret.scrambleIndex());
+        }
+
+        int stripeCount = ((count - 1) - (blockChars * blockCount)) / STRIPE_CHARS;
+        for (int stripe = 0; stripe < stripeCount; stripe++) {
+            accumulate(accumulators, values, offset + blockCount * blockChars + stripe * STRIPE_CHARS, secretStripes, Secret.stripeIndex(stripe));
+        }
+
+        accumulate(accumulators, values, offset + count - STRIPE_CHARS, secretStripes, secret.lastStripeIndex());
+
+        return merge(secret, (long) count * Character.BYTES, accumulators);
+    }
+
+    private static void accumulate(long[] accumulators, long[] values, int index, long[] secretStripes, int secretIndex)
+    {
+        for (int i = 0; i < SPECIES_PREFERRED.loopBound(STRIPE_LONGS); i += SPECIES_PREFERRED.length()) {
+            accumulate(accumulators, i, LongVector.fromArray(SPECIES_PREFERRED, values, index + i).reinterpretAsBytes(), secretStripes, secretIndex);
+        }
+    }
+
+    private static void accumulate(long[] accumulators, double[] values, int index, long[] secretStripes, int secretIndex)
+    {
+        for (int i = 0; i < SPECIES_PREFERRED.loopBound(STRIPE_LONGS); i += SPECIES_PREFERRED.length()) {
+            accumulate(accumulators, i, DoubleVector.fromArray(DOUBLE_SPECIES, values, index + i).reinterpretAsBytes(), secretStripes, secretIndex);
+        }
+    }
+
+    private static void accumulate(long[] accumulators, int[] values, int index, long[] secretStripes, int secretIndex)
+    {
+        // reinterpretation is defined in little-endian lane order on every platform
+        for (int i = 0; i < SPECIES_PREFERRED.loopBound(STRIPE_LONGS); i += SPECIES_PREFERRED.length()) {
+            accumulate(accumulators, i, IntVector.fromArray(INT_SPECIES, values, index + 2 * i).reinterpretAsBytes(), secretStripes, secretIndex);
+        }
+    }
+
+    private static void accumulate(long[] accumulators, char[] values, int index, long[] secretStripes, int secretIndex)
+    {
+        for (int i = 0; i < SPECIES_PREFERRED.loopBound(STRIPE_LONGS); i += SPECIES_PREFERRED.length()) {
+            accumulate(accumulators, i, ShortVector.fromCharArray(SHORT_SPECIES, values, index + 4 * i).reinterpretAsBytes(), secretStripes, secretIndex);
+        }
+    }
+
+    static void accumulate(long[] accumulators, byte[] input, int offset, long[] secretStripes, int secretIndex)
     {
         for (int i = 0; i < SPECIES_PREFERRED.loopBound(accumulators.length); i += SPECIES_PREFERRED.length()) {
-            LongVector accumulatorsVector = LongVector.fromArray(SPECIES_PREFERRED, accumulators, i);
             ByteVector inputVector = ByteVector.fromArray(ByteVector.SPECIES_PREFERRED, input, offset + i * 8);
-            ByteVector secretVector = ByteVector.fromArray(ByteVector.SPECIES_PREFERRED, SECRET, secretOffset + i * 8);
+            accumulate(accumulators, i, inputVector, secretStripes, secretIndex);
+        }
+    }
 
-            LongVector key = inputVector
-                    .lanewise(XOR, secretVector)
-                    .reinterpretAsLongs();
+    static void accumulate(long[] accumulators, MemorySegment input, long offset, long[] secretStripes, int secretIndex)
+    {
+        for (int i = 0; i < SPECIES_PREFERRED.loopBound(accumulators.length); i += SPECIES_PREFERRED.length()) {
+            ByteVector inputVector = ByteVector.fromMemorySegment(ByteVector.SPECIES_PREFERRED, input, offset + i * 8, LITTLE_ENDIAN);
+            accumulate(accumulators, i, inputVector, secretStripes, secretIndex);
+        }
+    }
 
-            LongVector low = key.and(0xFFFF_FFFFL);
-            LongVector high = key.lanewise(LSHR, 32);
-            LongVector product = high.mul(low);
+    private static void accumulate(long[] accumulators, int index, ByteVector inputVector, long[] secretStripes, int secretIndex)
+    {
+        LongVector accumulatorsVector = LongVector.fromArray(SPECIES_PREFERRED, accumulators, index);
+        LongVector secretVector = LongVector.fromArray(SPECIES_PREFERRED, secretStripes, secretIndex + index);
 
-            LongVector swapped = inputVector
-                    .rearrange(BYTE_SHUFFLE)
-                    .reinterpretAsLongs();
+        LongVector key = inputVector
+                .reinterpretAsLongs()
+                .lanewise(XOR, secretVector);
 
-            accumulatorsVector
-                    .add(swapped)
-                    .add(product)
-                    .intoArray(accumulators, i);
-        }
+        LongVector low = key.and(0xFFFF_FFFFL);
+        LongVector high = key.lanewise(LSHR, 32);
+        LongVector product = high.mul(low);
+
+        LongVector swapped = inputVector
+                .rearrange(BYTE_SHUFFLE)
+                .reinterpretAsLongs();
+
+        accumulatorsVector
+                .add(swapped)
+                .add(product)
+                .intoArray(accumulators, index);
     }
 
-    private static void scramble(long[] accumulators)
+    static void scramble(long[] accumulators, long[] secretStripes, int secretIndex)
     {
         for (int i = 0; i < SPECIES_PREFERRED.loopBound(accumulators.length); i += SPECIES_PREFERRED.length()) {
             LongVector vector = LongVector.fromArray(SPECIES_PREFERRED, accumulators, i);
-            LongVector secret = ByteVector.fromArray(ByteVector.SPECIES_PREFERRED, SECRET, (SECRET.length - STRIPE_LENGTH) + (i * 8)).reinterpretAsLongs();
+            LongVector secret = LongVector.fromArray(SPECIES_PREFERRED, secretStripes, secretIndex + i);
 
             vector.lanewise(XOR, vector.lanewise(LSHR, 47))
                     .lanewise(XOR, secret)
@@ -106,38 +385,34 @@ class LongHashVector
         }
     }
 
-    private static long merge(int length, long[] accumulators)
+    static long merge(Secret secret, long length, long[] accumulators)
+    {
+        return merge(secret, accumulators, SECRET_MERGE_ACCUMULATORS_START, length * PRIME64_1);
+    }
+
+    static long merge(Secret secret, long[] accumulators, int secretOffset, long result)
     {
-        long result = length * PRIME64_1;
         result += mix(
                 accumulators[2 * 0],
                 accumulators[2 * 0 + 1],
-                readLong(SECRET, SECRET_MERGE_ACCUMULATORS_START + 16 * 0),
-                readLong(SECRET, SECRET_MERGE_ACCUMULATORS_START + 16 * 0 + 8));
+                secret.longAt(secretOffset + 16 * 0),
+                secret.longAt(secretOffset + 16 * 0 + 8));
         result += mix(
                 accumulators[2 * 1],
                 accumulators[2 * 1 + 1],
-                readLong(SECRET, SECRET_MERGE_ACCUMULATORS_START + 16 * 1),
-                readLong(SECRET, SECRET_MERGE_ACCUMULATORS_START + 16 * 1 + 8));
+                secret.longAt(secretOffset + 16 * 1),
+                secret.longAt(secretOffset + 16 * 1 + 8));
         result += mix(
                 accumulators[2 * 2],
                 accumulators[2 * 2 + 1],
-                readLong(SECRET, SECRET_MERGE_ACCUMULATORS_START + 16 * 2),
-                readLong(SECRET, SECRET_MERGE_ACCUMULATORS_START + 16 * 2 + 8));
+                secret.longAt(secretOffset + 16 * 2),
+                secret.longAt(secretOffset + 16 * 2 + 8));
         result += mix(
                 accumulators[2 * 3],
                 accumulators[2 * 3 + 1],
-                readLong(SECRET, SECRET_MERGE_ACCUMULATORS_START + 16 * 3),
-                readLong(SECRET, SECRET_MERGE_ACCUMULATORS_START + 16 * 3 + 8));
+                secret.longAt(secretOffset + 16 * 3),
+                secret.longAt(secretOffset + 16 * 3 + 8));
 
         return avalanche(result);
     }
-
-    public static void main(String[] args)
-    {
-        byte[] data = new byte[100000];
-        for (int i = 0; i < 1000000; i++) {
-            hash(data, 0, data.length);
-        }
-    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static jdk.incubator.vector.LongVector.SPECIES_PREFERRED;
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.XOR;
+import static org.weakref.xxh.Constants.PRIME_MX1;
+import static org.weakref.xxh.Util.avalanche;
+
+/**
+ * Rendezvous (highest random weight) routing. Each node gets a seed derived from its name,
+ * and a key is routed to the node with the highest {@code avalanche(hash(key) ^ seed)}.
+ */
+public class RendezvousRouter
+{
+    private final List<String> nodes;
+    private final long[] seeds;
+
+    public RendezvousRouter(List<String> nodes)
+    {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("nodes is empty");
+        }
+
+        this.nodes = List.copyOf(nodes);
+        this.seeds = new long[nodes.size()];
+        for (int i = 0; i < seeds.length; i++) {
+            byte[] name = this.nodes.get(i).getBytes(UTF_8);
+            seeds[i] = Xxh3.hash64(name, 0, name.length);
+        }
+    }
+
+    public List<String> nodes()
+    {
+        return nodes;
+    }
+
+    public int route(byte[] key, int offset, int length)
+    {
+        return route(Xxh3.hash64(key, offset, length));
+    }
+
+    /**
+     * Returns the index of the node with the highest score for the given key hash.
+     * Ties are resolved in favor of the lowest node index.
+     */
+    public int route(long hash)
+    {
+        int bound = SPECIES_PREFERRED.loopBound(seeds.length);
+
+        long best = Long.MIN_VALUE;
+        int bestIndex = -1;
+        if (bound > 0) {
+            LongVector key = LongVector.broadcast(SPECIES_PREFERRED, hash);
+            LongVector bestScores = LongVector.broadcast(SPECIES_PREFERRED, Long.MIN_VALUE);
+            LongVector bestIndexes = LongVector.zero(SPECIES_PREFERRED);
+
+            for (int i = 0; i < bound; i += SPECIES_PREFERRED.length()) {
+                LongVector scores = score(key, LongVector.fromArray(SPECIES_PREFERRED, seeds, i));
+                VectorMask<Long> better = scores.compare(GT, bestScores);
+                bestScores = bestScores.blend(scores, better);
+                bestIndexes = bestIndexes.blend(LongVector.broadcast(SPECIES_PREFERRED, i), better);
+            }
+
+            // lane j of bestIndexes holds the start of the chunk, so the node is bestIndexes[j] + j
+            for (int lane = 0; lane < SPECIES_PREFERRED.length(); lane++) {
+                long score = bestScores.lane(lane);
+                int index = (int) bestIndexes.lane(lane) + lane;
+                if (bestIndex == -1 || score > best || (score == best && index < bestIndex)) {
+                    best = score;
+                    bestIndex = index;
+                }
+            }
+        }
+
+        for (int i = bound; i < seeds.length; i++) {
+            long score = avalanche(hash ^ seeds[i]);
+            if (bestIndex == -1 || score > best) {
+                best = score;
+                bestIndex = i;
+            }
+        }
+
+        return bestIndex;
+    }
+
+    public void route(long[] hashes, int[] result)
+    {
+        if (result.length < hashes.length) {
+            throw new IllegalArgumentException("result array too small: " + result.length + " < " + hashes.length);
+        }
+
+        for (int i = 0; i < hashes.length; i++) {
+            result[i] = route(hashes[i]);
+        }
+    }
+
+    private static LongVector score(LongVector key, LongVector seed)
+    {
+        // lane-wise equivalent of Util.avalanche(key ^ seed)
+        LongVector value = key.lanewise(XOR, seed);
+        value = value.lanewise(XOR, value.lanewise(LSHR, 37));
+        value = value.mul(PRIME_MX1);
+        return value.lanewise(XOR, value.lanewise(LSHR, 32));
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import static org.weakref.xxh.Constants.SECRET_CONSUME_RATE;
+import static org.weakref.xxh.Constants.SECRET_LAST_ACCUMULATOR_START;
+import static org.weakref.xxh.Constants.STRIPE_LENGTH;
+import static org.weakref.xxh.Util.readLong;
+
+/**
+ * A secret decoded into {@code long} tables, so hash kernels never read the raw bytes.
+ */
+final class Secret
+{
+    static final int MIN_LENGTH = 136;
+
+    static final Secret DEFAULT = new Secret(Constants.SECRET);
+
+    private static final int LANES = STRIPE_LENGTH / Long.BYTES;
+
+    private final int length;
+    private final int stripesPerBlock;
+
+    // longs[i] is the little-endian long at byte offset i of the secret
+    private final long[] longs;
+
+    // stripe-major layout for the long path: the 8 lanes of stripe s start at s * LANES,
+    // followed by the lanes for the last stripe and for the scramble step
+    private final long[] stripes;
+
+    Secret(byte[] secret)
+    {
+        if (secret.length < MIN_LENGTH) {
+            throw new IllegalArgumentException("secret must be at least " + MIN_LENGTH + " bytes: " + secret.length);
+        }
+
+        length = secret.length;
+        stripesPerBlock = (length - STRIPE_LENGTH) / SECRET_CONSUME_RATE;
+
+        longs = new long[length - Long.BYTES + 1];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = readLong(secret, i);
+        }
+
+        stripes = new long[(stripesPerBlock + 2) * LANES];
+        for (int stripe = 0; stripe < stripesPerBlock; stripe++) {
+            fillStripe(secret, stripe * LANES, stripe * SECRET_CONSUME_RATE);
+        }
+        fillStripe(secret, lastStripeIndex(), length - STRIPE_LENGTH - SECRET_LAST_ACCUMULATOR_START);
+        fillStripe(secret, scrambleIndex(), length - STRIPE_LENGTH);
+    }
+
+    private void fillStripe(byte[] secret, int index, int secretOffset)
+    {
+        for (int lane = 0; lane < LANES; lane++) {
+            stripes[index + lane] = readLong(secret, secretOffset + lane * Long.BYTES);
+        }
+    }
+
+    int length()
+    {
+        return length;
+    }
+
+    int stripesPerBlock()
+    {
+        return stripesPerBlock;
+    }
+
+    long longAt(int offset)
+    {
+        return longs[offset];
+    }
+
+    long[] longs()
+    {
+        return longs;
+    }
+
+    long[] stripes()
+    {
+        return stripes;
+    }
+
+    static int stripeIndex(int stripe)
+    {
+        return stripe * LANES;
+    }
+
+    int lastStripeIndex()
+    {
+        return stripesPerBlock * LANES;
+    }
+
+    int scrambleIndex()
+    {
+        return (stripesPerBlock + 1) * LANES;
+    }
+}
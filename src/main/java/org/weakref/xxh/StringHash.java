@@ -0,0 +1,149 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+
+/**
+ * Hashes character data without materializing its encoded form. Each thread reuses a small
+ * set of buffers, so hashing does not allocate once a thread has warmed up. Inputs longer than
+ * a buffer are streamed through an {@link Xxh3Hasher}.
+ */
+class StringHash
+{
+    private static final int CHUNK_CHARS = 1024;
+    private static final int UTF8_BUFFER_SIZE = 4 * CHUNK_CHARS;
+    private static final int MAX_DIRECT_CHARS = 64 * CHUNK_CHARS;
+
+    private static final ValueLayout.OfChar CHAR_LITTLE_ENDIAN = ValueLayout.JAVA_CHAR_UNALIGNED.withOrder(LITTLE_ENDIAN);
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private static final class Buffers
+    {
+        char[] chars = new char[CHUNK_CHARS];
+        final byte[] bytes = new byte[UTF8_BUFFER_SIZE];
+        final MemorySegment byteSegment = MemorySegment.ofArray(bytes);
+        final Xxh3Hasher hasher = new Xxh3Hasher();
+
+        char[] chars(int length)
+        {
+            if (chars.length < length) {
+                chars = new char[Math.min(MAX_DIRECT_CHARS, Math.max(length, 2 * chars.length))];
+            }
+            return chars;
+        }
+    }
+
+    /**
+     * Equivalent to hashing {@code value.toString().getBytes(UTF_8)}, including the replacement
+     * of unpaired surrogates with {@code '?'}.
+     */
+    public static long hashUtf8(CharSequence value)
+    {
+        Buffers buffers = BUFFERS.get();
+        byte[] buffer = buffers.bytes;
+        Xxh3Hasher hasher = null;
+
+        int position = 0;
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            // leave room for the longest encoding, a 4-byte surrogate pair
+            if (position > buffer.length - 4) {
+                if (hasher == null) {
+                    hasher = buffers.hasher.reset();
+                }
+                hasher.update(buffer, 0, position);
+                position = 0;
+            }
+
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[position++] = (byte) c;
+            }
+            else if (c < 0x800) {
+                buffer[position++] = (byte) (0xC0 | (c >> 6));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+            else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    buffer[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    buffer[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                }
+                else {
+                    buffer[position++] = '?';
+                }
+            }
+            else {
+                buffer[position++] = (byte) (0xE0 | (c >> 12));
+                buffer[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+
+        if (hasher == null) {
+            return Xxh3.hash64(buffer, 0, position);
+        }
+        return hasher.update(buffer, 0, position).digest();
+    }
+
+    /**
+     * Hashes the raw UTF-16 code units in little-endian order. For well-formed text this is the
+     * same as hashing {@code value.toString().getBytes(UTF_16LE)}. Unpaired surrogates are
+     * hashed as they are rather than replaced.
+     * <p>
+     * Sequences of up to {@value #MAX_DIRECT_CHARS} chars are copied once into a char buffer,
+     * which grows as needed, and hashed from it directly. Longer ones are streamed through the
+     * hasher, which needs each chunk as little-endian bytes.
+     */
+    public static long hashUtf16(CharSequence value)
+    {
+        Buffers buffers = BUFFERS.get();
+        int length = value.length();
+
+        if (length <= MAX_DIRECT_CHARS) {
+            char[] chars = buffers.chars(length);
+            getChars(value, 0, length, chars);
+            return Xxh3.hash64(chars, 0, length);
+        }
+
+        Xxh3Hasher hasher = buffers.hasher.reset();
+        for (int start = 0; start < length; start += CHUNK_CHARS) {
+            int count = Math.min(CHUNK_CHARS, length - start);
+            getChars(value, start, count, buffers.chars);
+            // a plain copy on little-endian platforms, a byte swap elsewhere
+            MemorySegment.copy(buffers.chars, 0, buffers.byteSegment, CHAR_LITTLE_ENDIAN, 0, count);
+            hasher.update(buffers.bytes, 0, 2 * count);
+        }
+        return hasher.digest();
+    }
+
+    private static void getChars(CharSequence value, int start, int count, char[] chars)
+    {
+        if (value instanceof String string) {
+            string.getChars(start, start + count, chars, 0);
+        }
+        else {
+            for (int i = 0; i < count; i++) {
+                chars[i] = value.charAt(start + i);
+            }
+        }
+    }
+}
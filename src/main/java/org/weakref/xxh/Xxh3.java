@@ -13,15 +13,24 @@
  */
 package org.weakref.xxh;
 
+import java.lang.foreign.MemorySegment;
 import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
+import java.util.Objects;
 
+import static java.lang.Math.toIntExact;
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static org.weakref.xxh.Constants.PRIME32_2;
 import static org.weakref.xxh.Constants.PRIME64_1;
 import static org.weakref.xxh.Constants.PRIME_MX2;
 import static org.weakref.xxh.Constants.SECRET;
 import static org.weakref.xxh.Constants.PRIME64_2;
 import static org.weakref.xxh.Constants.PRIME64_3;
+import static org.weakref.xxh.Constants.PRIME64_4;
+import static org.weakref.xxh.Util.CHAR_HANDLE;
+import static org.weakref.xxh.Util.INT_HANDLE;
+import static org.weakref.xxh.Util.LONG_HANDLE;
 import static org.weakref.xxh.Util.mix;
 import static org.weakref.xxh.Util.multiplyAndFold;
 import static org.weakref.xxh.Util.readLong;
@@ -32,6 +41,24 @@ public class Xxh3
 {
     private static final MethodHandle HASH_LONG;
 
+    // secret-derived constants for the short paths, folded at class initialization
+    private static final long SECRET_EMPTY = readLong(SECRET, 56) ^ readLong(SECRET, 64);
+    private static final long SECRET_1TO3 = readUnsignedInt(SECRET, 0) ^ readUnsignedInt(SECRET, 4);
+    private static final long SECRET_4TO8 = readLong(SECRET, 8) ^ readLong(SECRET, 16);
+    private static final long SECRET_9TO16_LOW = readLong(SECRET, 24) ^ readLong(SECRET, 32);
+    private static final long SECRET_9TO16_HIGH = readLong(SECRET, 40) ^ readLong(SECRET, 48);
+
+    private static final long SECRET128_EMPTY_LOW = readLong(SECRET, 64) ^ readLong(SECRET, 72);
+    private static final long SECRET128_EMPTY_HIGH = readLong(SECRET, 80) ^ readLong(SECRET, 88);
+    private static final long SECRET128_1TO3_LOW = readUnsignedInt(SECRET, 0) ^ readUnsignedInt(SECRET, 4);
+    private static final long SECRET128_1TO3_HIGH = readUnsignedInt(SECRET, 8) ^ readUnsignedInt(SECRET, 12);
+    private static final long SECRET128_4TO8 = readLong(SECRET, 16) ^ readLong(SECRET, 24);
+    private static final long SECRET128_9TO16_LOW = readLong(SECRET, 32) ^ readLong(SECRET, 40);
+    private static final long SECRET128_9TO16_HIGH = readLong(SECRET, 48) ^ readLong(SECRET, 56);
+
+    // SECRET_LONGS[i] is the little-endian long at byte offset i of the secret
+    private static final long[] SECRET_LONGS = Secret.DEFAULT.longs();
+
     static {
         try {
 //            HASH_LONG = MethodHandles.lookup().findStatic(LongHashScalar.class, "hash", MethodType.methodType(long.class, byte[].class, int.class, int.class));
@@ -44,9 +71,17 @@ public class Xxh3
     }
 
     public static long hash64(byte[] input, int offset, int length)
+    {
+        if (Xxh3Metrics.ENABLED) {
+            return Xxh3Metrics.hash64(input, offset, length);
+        }
+        return hash64Uninstrumented(input, offset, length);
+    }
+
+    static long hash64Uninstrumented(byte[] input, int offset, int length)
     {
         if (length == 0) {
-            return xxh64Avalanche(readLong(SECRET, 56) ^ readLong(SECRET, 64));
+            return xxh64Avalanche(SECRET_EMPTY);
         }
         else if (length < 4) {
             return hash1to3(input, offset, length);
@@ -72,25 +107,207 @@ public class Xxh3
         }
     }
 
+    public static long hash64(MemorySegment input)
+    {
+        return hash64(input, 0, input.byteSize());
+    }
+
+    /**
+     * Hashes a range of a segment using long offsets, so inputs may be larger than 2 GB.
+     */
+    public static long hash64(MemorySegment input, long offset, long length)
+    {
+        Objects.checkFromIndexSize(offset, length, input.byteSize());
+
+        // for heap segments, address() is the offset into the backing array
+        if (input.heapBase().orElse(null) instanceof byte[] array) {
+            return hash64(array, toIntExact(input.address() + offset), toIntExact(length));
+        }
+        if (Xxh3Metrics.ENABLED) {
+            return Xxh3Metrics.hash64(input, offset, length);
+        }
+        return hash64Uninstrumented(input, offset, length);
+    }
+
+    static long hash64Uninstrumented(MemorySegment input, long offset, long length)
+    {
+        if (length <= MIDSIZE_MAX) {
+            byte[] buffer = SHORT_INPUT_BUFFER.get();
+            MemorySegment.copy(input, JAVA_BYTE, offset, buffer, 0, (int) length);
+            return hash64Uninstrumented(buffer, 0, (int) length);
+        }
+        return LongHashVector.hash(Secret.DEFAULT, input, offset, length);
+    }
+
+    /**
+     * Hashes {@code count} values as if serialized to bytes in little-endian order. Inputs of up
+     * to 240 bytes are written to a reused per-thread buffer for the short-input kernels, larger
+     * inputs are read straight from the array.
+     */
+    public static long hash64(long[] values, int offset, int count)
+    {
+        Objects.checkFromIndexSize(offset, count, values.length);
+        if (Xxh3Metrics.ENABLED) {
+            return Xxh3Metrics.hash64(values, offset, count);
+        }
+        return hash64Uninstrumented(values, offset, count);
+    }
+
+    static long hash64Uninstrumented(long[] values, int offset, int count)
+    {
+        if ((long) count * Long.BYTES <= MIDSIZE_MAX) {
+            byte[] buffer = SHORT_INPUT_BUFFER.get();
+            for (int i = 0; i < count; i++) {
+                LONG_HANDLE.set(buffer, i * Long.BYTES, values[offset + i]);
+            }
+            return hash64Uninstrumented(buffer, 0, count * Long.BYTES);
+        }
+        return LongHashVector.hash(Secret.DEFAULT, values, offset, count);
+    }
+
+    /**
+     * Hashes {@code count} values as if serialized to bytes in little-endian order, using the
+     * raw bits of each value as {@link Double#doubleToRawLongBits} does.
+     */
+    public static long hash64(double[] values, int offset, int count)
+    {
+        Objects.checkFromIndexSize(offset, count, values.length);
+        if (Xxh3Metrics.ENABLED) {
+            return Xxh3Metrics.hash64(values, offset, count);
+        }
+        return hash64Uninstrumented(values, offset, count);
+    }
+
+    static long hash64Uninstrumented(double[] values, int offset, int count)
+    {
+        if ((long) count * Double.BYTES <= MIDSIZE_MAX) {
+            byte[] buffer = SHORT_INPUT_BUFFER.get();
+            for (int i = 0; i < count; i++) {
+                LONG_HANDLE.set(buffer, i * Double.BYTES, Double.doubleToRawLongBits(values[offset + i]));
+            }
+            return hash64Uninstrumented(buffer, 0, count * Double.BYTES);
+        }
+        return LongHashVector.hash(Secret.DEFAULT, values, offset, count);
+    }
+
+    public static long hash64(int[] values, int offset, int count)
+    {
+        Objects.checkFromIndexSize(offset, count, values.length);
+        if (Xxh3Metrics.ENABLED) {
+            return Xxh3Metrics.hash64(values, offset, count);
+        }
+        return hash64Uninstrumented(values, offset, count);
+    }
+
+    static long hash64Uninstrumented(int[] values, int offset, int count)
+    {
+        if ((long) count * Integer.BYTES <= MIDSIZE_MAX) {
+            byte[] buffer = SHORT_INPUT_BUFFER.get();
+            for (int i = 0; i < count; i++) {
+                INT_HANDLE.set(buffer, i * Integer.BYTES, values[offset + i]);
+            }
+            return hash64Uninstrumented(buffer, 0, count * Integer.BYTES);
+        }
+        return LongHashVector.hash(Secret.DEFAULT, values, offset, count);
+    }
+
+    /**
+     * Hashes {@code count} chars as UTF-16 code units in little-endian order.
+     */
+    static long hash64(char[] values, int offset, int count)
+    {
+        Objects.checkFromIndexSize(offset, count, values.length);
+        if (Xxh3Metrics.ENABLED) {
+            return Xxh3Metrics.hash64(values, offset, count);
+        }
+        return hash64Uninstrumented(values, offset, count);
+    }
+
+    static long hash64Uninstrumented(char[] values, int offset, int count)
+    {
+        if ((long) count * Character.BYTES <= MIDSIZE_MAX) {
+            byte[] buffer = SHORT_INPUT_BUFFER.get();
+            for (int i = 0; i < count; i++) {
+                CHAR_HANDLE.set(buffer, i * Character.BYTES, values[offset + i]);
+            }
+            return hash64Uninstrumented(buffer, 0, count * Character.BYTES);
+        }
+        return LongHashVector.hash(Secret.DEFAULT, values, offset, count);
+    }
+
+    public static Hash128 hash128(MemorySegment input)
+    {
+        return hash128(input, 0, input.byteSize());
+    }
+
+    public static Hash128 hash128(MemorySegment input, long offset, long length)
+    {
+        Objects.checkFromIndexSize(offset, length, input.byteSize());
+
+        if (input.heapBase().orElse(null) instanceof byte[] array) {
+            return hash128(array, toIntExact(input.address() + offset), toIntExact(length));
+        }
+        if (length <= MIDSIZE_MAX) {
+            byte[] buffer = SHORT_INPUT_BUFFER.get();
+            MemorySegment.copy(input, JAVA_BYTE, offset, buffer, 0, (int) length);
+            return hash128(buffer, 0, (int) length);
+        }
+        return LongHashVector.hash128(Secret.DEFAULT, input, offset, length);
+    }
+
+    /**
+     * Hashes the UTF-8 encoding of the string, without allocating. The result is the same as
+     * {@code hash64(value.getBytes(UTF_8))}.
+     */
+    public static long hashString(String value)
+    {
+        return StringHash.hashUtf8(value);
+    }
+
+    public static long hashUtf8(CharSequence value)
+    {
+        return StringHash.hashUtf8(value);
+    }
+
+    /**
+     * Hashes the UTF-16 code units of the sequence in little-endian order, without allocating.
+     * This is cheaper than {@link #hashString}. For well-formed text the result is the same as
+     * {@code hash64(value.toString().getBytes(UTF_16LE))}.
+     */
+    public static long hashChars(CharSequence value)
+    {
+        return StringHash.hashUtf16(value);
+    }
+
+    /**
+     * Hashes {@code count} keys of {@code keyLength} bytes each, stored back to back in
+     * {@code slab}, into {@code result}. Equivalent to calling {@link #hash64} on every key, but
+     * keys of 9 to 128 bytes are hashed several at a time across vector lanes.
+     */
+    public static void hashFixed(byte[] slab, int keyLength, int count, long[] result)
+    {
+        FixedLengthHashVector.hash(slab, keyLength, count, result);
+    }
+
     private static long hash1to3(byte[] input, int offset, int length)
     {
         long c1 = input[offset] & 0xFF;
         long c2 = input[offset + (length >>> 1)] & 0xFF;
         long c3 = input[offset + (length - 1)] & 0xFF;
         long combined = (c1 << 16) | (c2 << 24) | c3 | ((long) length << 8);
-        return xxh64Avalanche(combined ^ readUnsignedInt(SECRET, 0) ^ readUnsignedInt(SECRET, 4));
+        return xxh64Avalanche(combined ^ SECRET_1TO3);
     }
 
     private static long hash4to8(byte[] input, int offset, int length)
     {
         long value = readUnsignedInt(input, offset + length - 4) + (readUnsignedInt(input, offset) << 32);
-        return strongAvalanche(value ^ readLong(SECRET, 8) ^ readLong(SECRET, 16), length);
+        return strongAvalanche(value ^ SECRET_4TO8, length);
     }
 
     private static long hash9to16(byte[] input, int offset, int length)
     {
-        long low = readLong(input, offset) ^ (readLong(SECRET, 24) ^ readLong(SECRET, 32));
-        long high = readLong(input, offset + length - 8) ^ (readLong(SECRET, 40) ^ readLong(SECRET, 48));
+        long low = readLong(input, offset) ^ SECRET_9TO16_LOW;
+        long high = readLong(input, offset + length - 8) ^ SECRET_9TO16_HIGH;
 
         return avalanche(length + Long.reverseBytes(low) + high + multiplyAndFold(low, high));
     }
@@ -127,8 +344,8 @@ public class Xxh3
         long first2 = readLong(input, backward);
         backward -= 8;
 
-        accumulator += mix(first, second, readLong(SECRET, 0), readLong(SECRET, 8));
-        accumulator += mix(first2, second2, readLong(SECRET, 16), readLong(SECRET, 24));
+        accumulator += mix(first, second, SECRET_LONGS[0], SECRET_LONGS[8]);
+        accumulator += mix(first2, second2, SECRET_LONGS[16], SECRET_LONGS[24]);
         if (length > 32) {
             first = readLong(input, forward);
             forward += 8;
@@ -140,8 +357,8 @@ public class Xxh3
             first2 = readLong(input, backward);
             backward -= 8;
 
-            accumulator += mix(first, second, readLong(SECRET, 32), readLong(SECRET, 40));
-            accumulator += mix(first2, second2, readLong(SECRET, 48), readLong(SECRET, 56));
+            accumulator += mix(first, second, SECRET_LONGS[32], SECRET_LONGS[40]);
+            accumulator += mix(first2, second2, SECRET_LONGS[48], SECRET_LONGS[56]);
             if (length > 64) {
                 first = readLong(input, forward);
                 forward += 8;
@@ -153,8 +370,8 @@ public class Xxh3
                 first2 = readLong(input, backward);
                 backward -= 8;
 
-                accumulator += mix(first, second, readLong(SECRET, 64), readLong(SECRET, 72));
-                accumulator += mix(first2, second2, readLong(SECRET, 80), readLong(SECRET, 88));
+                accumulator += mix(first, second, SECRET_LONGS[64], SECRET_LONGS[72]);
+                accumulator += mix(first2, second2, SECRET_LONGS[80], SECRET_LONGS[88]);
                 if (length > 96) {
                     first = readLong(input, forward);
                     forward += 8;
@@ -166,8 +383,8 @@ public class Xxh3
                     first2 = readLong(input, backward);
                     backward -= 8;
 
-                    accumulator += mix(first, second, readLong(SECRET, 96), readLong(SECRET, 104));
-                    accumulator += mix(first2, second2, readLong(SECRET, 112), readLong(SECRET, 120));
+                    accumulator += mix(first, second, SECRET_LONGS[96], SECRET_LONGS[104]);
+                    accumulator += mix(first2, second2, SECRET_LONGS[112], SECRET_LONGS[120]);
                 }
             }
         }
@@ -191,9 +408,14 @@ public class Xxh3
     }
 
     private static final int SECRET_MIN_SIZE = 136;
+    private static final int MIDSIZE_MAX = 240;
+
     private static final int MIDSIZE_LAST_OFFSET = 17;
     private static final int MIDSIZE_STARTOFFSET = 3;
 
+    // short native inputs are copied here so the byte[] kernels can read them without allocating
+    private static final ThreadLocal<byte[]> SHORT_INPUT_BUFFER = ThreadLocal.withInitial(() -> new byte[MIDSIZE_MAX]);
+
     private static long hash129to240(byte[] data, int offset, int length)
     {
         long accumulator = length * PRIME64_1;
@@ -201,28 +423,182 @@ public class Xxh3
             accumulator += mix(
                     readLong(data, offset + 16 * i),
                     readLong(data, offset + 16 * i + 8),
-                    readLong(SECRET, 16 * i),
-                    readLong(SECRET, 16 * i + 8));
+                    SECRET_LONGS[16 * i],
+                    SECRET_LONGS[16 * i + 8]);
         }
         accumulator = avalanche(accumulator);
         long end = mix(
                 readLong(data, offset + length - 16),
                 readLong(data, offset + length - 8),
-                readLong(SECRET, SECRET_MIN_SIZE - MIDSIZE_LAST_OFFSET),
-                readLong(SECRET, SECRET_MIN_SIZE - MIDSIZE_LAST_OFFSET + 8));
+                SECRET_LONGS[SECRET_MIN_SIZE - MIDSIZE_LAST_OFFSET],
+                SECRET_LONGS[SECRET_MIN_SIZE - MIDSIZE_LAST_OFFSET + 8]);
 
         int rounds = length / 16;
         for (int i = 8; i < rounds; i++) {
             end += mix(
                     readLong(data, offset + 16 * i),
                     readLong(data, offset + 16 * i + 8),
-                    readLong(SECRET, 16 * (i - 8) + MIDSIZE_STARTOFFSET),
-                    readLong(SECRET, 16 * (i - 8) + MIDSIZE_STARTOFFSET + 8));
+                    SECRET_LONGS[16 * (i - 8) + MIDSIZE_STARTOFFSET],
+                    SECRET_LONGS[16 * (i - 8) + MIDSIZE_STARTOFFSET + 8]);
         }
 
         return avalanche(accumulator + end);
     }
 
+    public static Hash128 hash128(byte[] input, int offset, int length)
+    {
+        if (length == 0) {
+            return new Hash128(xxh64Avalanche(SECRET128_EMPTY_LOW), xxh64Avalanche(SECRET128_EMPTY_HIGH));
+        }
+        else if (length < 4) {
+            return hash128_1to3(input, offset, length);
+        }
+        else if (length <= 8) {
+            return hash128_4to8(input, offset, length);
+        }
+        else if (length <= 16) {
+            return hash128_9to16(input, offset, length);
+        }
+        else if (length <= 128) {
+            return hash128_17to128(input, offset, length);
+        }
+        else if (length <= 240) {
+            return hash128_129to240(input, offset, length);
+        }
+
+        return LongHashVector.hash128(Secret.DEFAULT, input, offset, length);
+    }
+
+    private static Hash128 hash128_1to3(byte[] input, int offset, int length)
+    {
+        int c1 = input[offset] & 0xFF;
+        int c2 = input[offset + (length >>> 1)] & 0xFF;
+        int c3 = input[offset + (length - 1)] & 0xFF;
+        int combinedLow = (c1 << 16) | (c2 << 24) | c3 | (length << 8);
+        int combinedHigh = Integer.rotateLeft(Integer.reverseBytes(combinedLow), 13);
+
+        long low = (combinedLow & 0xFFFF_FFFFL) ^ SECRET128_1TO3_LOW;
+        long high = (combinedHigh & 0xFFFF_FFFFL) ^ SECRET128_1TO3_HIGH;
+        return new Hash128(xxh64Avalanche(low), xxh64Avalanche(high));
+    }
+
+    private static Hash128 hash128_4to8(byte[] input, int offset, int length)
+    {
+        long value = readUnsignedInt(input, offset) + (readUnsignedInt(input, offset + length - 4) << 32);
+        long keyed = value ^ SECRET128_4TO8;
+
+        long multiplier = PRIME64_1 + ((long) length << 2);
+        long low = keyed * multiplier;
+        long high = Math.unsignedMultiplyHigh(keyed, multiplier);
+
+        high += low << 1;
+        low ^= high >>> 3;
+        low ^= low >>> 35;
+        low *= PRIME_MX2;
+        low ^= low >>> 28;
+        return new Hash128(low, avalanche(high));
+    }
+
+    private static Hash128 hash128_9to16(byte[] input, int offset, int length)
+    {
+        long inputLow = readLong(input, offset);
+        long inputHigh = readLong(input, offset + length - 8);
+
+        long keyed = inputLow ^ inputHigh ^ SECRET128_9TO16_LOW;
+        long low = keyed * PRIME64_1;
+        long high = Math.unsignedMultiplyHigh(keyed, PRIME64_1);
+
+        low += (long) (length - 1) << 54;
+        inputHigh ^= SECRET128_9TO16_HIGH;
+        high += inputHigh + (inputHigh & 0xFFFF_FFFFL) * (PRIME32_2 - 1);
+        low ^= Long.reverseBytes(high);
+
+        long resultLow = low * PRIME64_2;
+        long resultHigh = Math.unsignedMultiplyHigh(low, PRIME64_2) + high * PRIME64_2;
+        return new Hash128(avalanche(resultLow), avalanche(resultHigh));
+    }
+
+    private static Hash128 hash128_17to128(byte[] input, int offset, int length)
+    {
+        long low = length * PRIME64_1;
+        long high = 0;
+
+        int i = (length - 1) / 32;
+        do {
+            int first = offset + 16 * i;
+            int second = offset + length - 16 * (i + 1);
+            long firstLow = readLong(input, first);
+            long firstHigh = readLong(input, first + 8);
+            long secondLow = readLong(input, second);
+            long secondHigh = readLong(input, second + 8);
+
+            low += mix(firstLow, firstHigh, SECRET_LONGS[32 * i], SECRET_LONGS[32 * i + 8]);
+            low ^= secondLow + secondHigh;
+            high += mix(secondLow, secondHigh, SECRET_LONGS[32 * i + 16], SECRET_LONGS[32 * i + 24]);
+            high ^= firstLow + firstHigh;
+        }
+        while (i-- != 0);
+
+        return finish128(low, high, length);
+    }
+
+    private static Hash128 hash128_129to240(byte[] input, int offset, int length)
+    {
+        long low = length * PRIME64_1;
+        long high = 0;
+
+        for (int i = 0; i < 4; i++) {
+            int first = offset + 32 * i;
+            long firstLow = readLong(input, first);
+            long firstHigh = readLong(input, first + 8);
+            long secondLow = readLong(input, first + 16);
+            long secondHigh = readLong(input, first + 24);
+
+            low += mix(firstLow, firstHigh, SECRET_LONGS[32 * i], SECRET_LONGS[32 * i + 8]);
+            low ^= secondLow + secondHigh;
+            high += mix(secondLow, secondHigh, SECRET_LONGS[32 * i + 16], SECRET_LONGS[32 * i + 24]);
+            high ^= firstLow + firstHigh;
+        }
+        low = avalanche(low);
+        high = avalanche(high);
+
+        int rounds = length / 32;
+        for (int i = 4; i < rounds; i++) {
+            int first = offset + 32 * i;
+            int secretOffset = MIDSIZE_STARTOFFSET + 32 * (i - 4);
+            long firstLow = readLong(input, first);
+            long firstHigh = readLong(input, first + 8);
+            long secondLow = readLong(input, first + 16);
+            long secondHigh = readLong(input, first + 24);
+
+            low += mix(firstLow, firstHigh, SECRET_LONGS[secretOffset], SECRET_LONGS[secretOffset + 8]);
+            low ^= secondLow + secondHigh;
+            high += mix(secondLow, secondHigh, SECRET_LONGS[secretOffset + 16], SECRET_LONGS[secretOffset + 24]);
+            high ^= firstLow + firstHigh;
+        }
+
+        // last bytes, with the two halves swapped
+        int secretOffset = SECRET_MIN_SIZE - MIDSIZE_LAST_OFFSET - 16;
+        long firstLow = readLong(input, offset + length - 16);
+        long firstHigh = readLong(input, offset + length - 8);
+        long secondLow = readLong(input, offset + length - 32);
+        long secondHigh = readLong(input, offset + length - 24);
+
+        low += mix(firstLow, firstHigh, SECRET_LONGS[secretOffset], SECRET_LONGS[secretOffset + 8]);
+        low ^= secondLow + secondHigh;
+        high += mix(secondLow, secondHigh, SECRET_LONGS[secretOffset + 16], SECRET_LONGS[secretOffset + 24]);
+        high ^= firstLow + firstHigh;
+
+        return finish128(low, high, length);
+    }
+
+    private static Hash128 finish128(long low, long high, int length)
+    {
+        long resultLow = low + high;
+        long resultHigh = (low * PRIME64_1) + (high * PRIME64_4) + (length * PRIME64_2);
+        return new Hash128(avalanche(resultLow), -avalanche(resultHigh));
+    }
+
     private static long xxh64Avalanche(long value)
     {
         value = value ^ (value >>> 33);
@@ -0,0 +1,286 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Checksums every regular file under a directory with XXH3 and writes a manifest of path, size,
+ * modification time and hash. Files whose size and modification time match the previous
+ * manifest are not read again. Files that disappear while the directory is being scanned are
+ * left out of the manifest.
+ * <p>
+ * Usage: {@code Xxh3Checksum <directory> [--manifest <file>] [--threads <count>]}
+ * <p>
+ * The manifest has one tab-separated line per file: hash (hex), size, modification time as an
+ * ISO-8601 instant at the file system's full precision, and the path relative to the directory.
+ * Paths containing newlines are not supported.
+ */
+public final class Xxh3Checksum
+{
+    private static final String DEFAULT_MANIFEST = ".xxh3-manifest";
+
+    record Entry(long size, FileTime lastModified, long hash) {}
+
+    record Result(int files, int hashed, int skipped, int vanished, long bytesHashed, long elapsedNanos)
+    {
+        @Override
+        public String toString()
+        {
+            double seconds = elapsedNanos / 1e9;
+            return String.format(
+                    "%d files, %d hashed, %d skipped (unchanged), %d vanished, %.1f MB hashed in %.2f s (%.1f MB/s)",
+                    files,
+                    hashed,
+                    skipped,
+                    vanished,
+                    bytesHashed / 1e6,
+                    seconds,
+                    seconds == 0 ? 0 : bytesHashed / 1e6 / seconds);
+        }
+    }
+
+    public static void main(String[] args)
+            throws IOException, InterruptedException
+    {
+        Path directory = null;
+        Path manifest = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--manifest" -> manifest = Path.of(argument(args, ++i));
+                case "--threads" -> threads = Integer.parseInt(argument(args, ++i));
+                default -> {
+                    if (directory != null) {
+                        usage();
+                    }
+                    directory = Path.of(args[i]);
+                }
+            }
+        }
+        if (directory == null) {
+            usage();
+        }
+        if (manifest == null) {
+            manifest = directory.resolve(DEFAULT_MANIFEST);
+        }
+
+        System.err.println(run(directory, manifest, threads));
+    }
+
+    private static String argument(String[] args, int index)
+    {
+        if (index >= args.length) {
+            usage();
+        }
+        return args[index];
+    }
+
+    private static void usage()
+    {
+        System.err.println("Usage: Xxh3Checksum <directory> [--manifest <file>] [--threads <count>]");
+        System.exit(2);
+    }
+
+    static Result run(Path directory, Path manifest, int threads)
+            throws IOException, InterruptedException
+    {
+        long start = System.nanoTime();
+
+        Map<String, Entry> previous = Files.exists(manifest) ? readManifest(manifest) : Map.of();
+        AtomicInteger vanished = new AtomicInteger();
+        List<Path> files = listFiles(directory, List.of(manifest, temporaryManifest(manifest)), vanished);
+
+        AtomicInteger skipped = new AtomicInteger();
+        AtomicLong bytesHashed = new AtomicLong();
+        Map<String, Entry> current = new TreeMap<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<Entry>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                Entry cached = previous.get(relativeName(directory, file));
+                futures.add(executor.submit(() -> {
+                    Entry entry = checksum(file, cached);
+                    if (entry == null) {
+                        vanished.incrementAndGet();
+                    }
+                    else if (entry == cached) {
+                        skipped.incrementAndGet();
+                    }
+                    else {
+                        bytesHashed.addAndGet(entry.size());
+                    }
+                    return entry;
+                }));
+            }
+
+            for (int i = 0; i < files.size(); i++) {
+                Entry entry = futures.get(i).get();
+                if (entry != null) {
+                    current.put(relativeName(directory, files.get(i)), entry);
+                }
+            }
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+            throw new RuntimeException(e.getCause());
+        }
+
+        writeManifest(manifest, current);
+
+        int hashed = current.size() - skipped.get();
+        return new Result(current.size(), hashed, skipped.get(), vanished.get(), bytesHashed.get(), System.nanoTime() - start);
+    }
+
+    /**
+     * Returns {@code cached} if the file's size and modification time still match it, a freshly
+     * hashed entry if not, or {@code null} if the file no longer exists.
+     */
+    static Entry checksum(Path file, Entry cached)
+            throws IOException
+    {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            long size = attributes.size();
+            FileTime lastModified = attributes.lastModifiedTime();
+            if (cached != null && cached.size() == size && cached.lastModified().equals(lastModified)) {
+                return cached;
+            }
+            return new Entry(size, lastModified, hashFile(file, size));
+        }
+        catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static List<Path> listFiles(Path directory, List<Path> excludedFiles, AtomicInteger vanished)
+            throws IOException
+    {
+        List<Path> excluded = excludedFiles.stream()
+                .map(path -> path.toAbsolutePath().normalize())
+                .toList();
+
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(directory, new SimpleFileVisitor<>()
+        {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+            {
+                // like Files.isRegularFile, symbolic links to regular files count as files
+                boolean regular = attributes.isRegularFile() || (attributes.isSymbolicLink() && Files.isRegularFile(file));
+                if (regular && !excluded.contains(file.toAbsolutePath().normalize())) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e)
+                    throws IOException
+            {
+                if (e instanceof NoSuchFileException) {
+                    vanished.incrementAndGet();
+                    return FileVisitResult.CONTINUE;
+                }
+                throw e;
+            }
+        });
+        return files;
+    }
+
+    static long hashFile(Path file, long size)
+            throws IOException
+    {
+        try (Arena arena = Arena.ofConfined(); FileChannel channel = FileChannel.open(file, READ)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, size, arena);
+            return Xxh3.hash64(segment);
+        }
+    }
+
+    static Map<String, Entry> readManifest(Path manifest)
+            throws IOException
+    {
+        Map<String, Entry> entries = new HashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(manifest, UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", 4);
+                if (fields.length != 4) {
+                    throw new IOException("Malformed manifest line: " + line);
+                }
+                entries.put(fields[3], new Entry(Long.parseLong(fields[1]), FileTime.from(Instant.parse(fields[2])), Long.parseUnsignedLong(fields[0], 16)));
+            }
+        }
+        catch (NumberFormatException | DateTimeParseException e) {
+            throw new IOException("Malformed manifest: " + manifest, e);
+        }
+        return entries;
+    }
+
+    static void writeManifest(Path manifest, Map<String, Entry> entries)
+            throws IOException
+    {
+        Path temporary = temporaryManifest(manifest);
+        try (BufferedWriter writer = Files.newBufferedWriter(temporary, UTF_8)) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                Entry value = entry.getValue();
+                writer.write(String.format("%016x\t%d\t%s\t%s%n", value.hash(), value.size(), value.lastModified().toInstant(), entry.getKey()));
+            }
+        }
+        Files.move(temporary, manifest, REPLACE_EXISTING, ATOMIC_MOVE);
+    }
+
+    private static Path temporaryManifest(Path manifest)
+    {
+        return manifest.resolveSibling(manifest.getFileName() + ".tmp");
+    }
+
+    private static String relativeName(Path directory, Path file)
+    {
+        return directory.relativize(file).toString();
+    }
+}
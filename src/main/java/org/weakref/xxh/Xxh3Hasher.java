@@ -0,0 +1,219 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static org.weakref.xxh.Constants.PRIME32_1;
+import static org.weakref.xxh.Constants.PRIME32_2;
+import static org.weakref.xxh.Constants.PRIME32_3;
+import static org.weakref.xxh.Constants.PRIME64_1;
+import static org.weakref.xxh.Constants.PRIME64_2;
+import static org.weakref.xxh.Constants.PRIME64_3;
+import static org.weakref.xxh.Constants.PRIME64_4;
+import static org.weakref.xxh.Constants.PRIME64_5;
+import static org.weakref.xxh.Constants.STRIPE_LENGTH;
+
+/**
+ * Incremental XXH3 64-bit hashing. Feeding the same bytes through any sequence of
+ * {@code update} calls produces the same result as {@link Xxh3#hash64} over the concatenation.
+ * <p>
+ * Instances are not thread safe.
+ */
+public final class Xxh3Hasher
+{
+    private static final int BUFFER_STRIPES = 4;
+    private static final int BUFFER_SIZE = BUFFER_STRIPES * STRIPE_LENGTH;
+    private static final int MIDSIZE_MAX = 240;
+
+    private final Secret secret = Secret.DEFAULT;
+    private final long[] accumulators = new long[8];
+
+    // keeps the last stripe of the previous bulk update in its final STRIPE_LENGTH bytes
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int bufferedSize;
+    private int stripesSoFar;
+    private long totalLength;
+
+    public Xxh3Hasher()
+    {
+        reset();
+    }
+
+    public Xxh3Hasher reset()
+    {
+        accumulators[0] = PRIME32_3;
+        accumulators[1] = PRIME64_1;
+        accumulators[2] = PRIME64_2;
+        accumulators[3] = PRIME64_3;
+        accumulators[4] = PRIME64_4;
+        accumulators[5] = PRIME32_2;
+        accumulators[6] = PRIME64_5;
+        accumulators[7] = PRIME32_1;
+        bufferedSize = 0;
+        stripesSoFar = 0;
+        totalLength = 0;
+        return this;
+    }
+
+    public long length()
+    {
+        return totalLength;
+    }
+
+    public Xxh3Hasher update(byte[] input)
+    {
+        return update(input, 0, input.length);
+    }
+
+    public Xxh3Hasher update(byte[] input, int offset, int length)
+    {
+        if (length == 0) {
+            return this;
+        }
+
+        totalLength += length;
+
+        if (bufferedSize + length <= BUFFER_SIZE) {
+            System.arraycopy(input, offset, buffer, bufferedSize, length);
+            bufferedSize += length;
+            return this;
+        }
+
+        int end = offset + length;
+        if (bufferedSize > 0) {
+            int loadSize = BUFFER_SIZE - bufferedSize;
+            System.arraycopy(input, offset, buffer, bufferedSize, loadSize);
+            offset += loadSize;
+            consumeStripes(buffer, 0, BUFFER_STRIPES);
+            bufferedSize = 0;
+        }
+
+        // always leave between 1 and BUFFER_SIZE bytes for the buffer, since the final
+        // stripe must be processed differently at digest time
+        if (end - offset > BUFFER_SIZE) {
+            do {
+                consumeStripes(input, offset, BUFFER_STRIPES);
+                offset += BUFFER_SIZE;
+            }
+            while (offset < end - BUFFER_SIZE);
+
+            System.arraycopy(input, offset - STRIPE_LENGTH, buffer, BUFFER_SIZE - STRIPE_LENGTH, STRIPE_LENGTH);
+        }
+
+        System.arraycopy(input, offset, buffer, 0, end - offset);
+        bufferedSize = end - offset;
+        return this;
+    }
+
+    public Xxh3Hasher update(ByteBuffer input)
+    {
+        if (input.hasArray()) {
+            update(input.array(), input.arrayOffset() + input.position(), input.remaining());
+            input.position(input.limit());
+            return this;
+        }
+
+        byte[] chunk = new byte[Math.min(input.remaining(), 8192)];
+        while (input.hasRemaining()) {
+            int length = Math.min(input.remaining(), chunk.length);
+            input.get(chunk, 0, length);
+            update(chunk, 0, length);
+        }
+        return this;
+    }
+
+    public Xxh3Hasher update(MemorySegment input)
+    {
+        if (input.heapBase().orElse(null) instanceof byte[] array) {
+            // for heap segments, address() is the offset into the backing array
+            return update(array, (int) input.address(), (int) input.byteSize());
+        }
+
+        byte[] chunk = new byte[(int) Math.min(input.byteSize(), 8192)];
+        for (long position = 0; position < input.byteSize(); position += chunk.length) {
+            int length = (int) Math.min(input.byteSize() - position, chunk.length);
+            MemorySegment.copy(input, JAVA_BYTE, position, chunk, 0, length);
+            update(chunk, 0, length);
+        }
+        return this;
+    }
+
+    /**
+     * Returns the hash of all bytes fed so far. The state is left unchanged, so more
+     * input can be added afterwards.
+     */
+    public long digest()
+    {
+        if (totalLength <= MIDSIZE_MAX) {
+            return Xxh3.hash64(buffer, 0, (int) totalLength);
+        }
+
+        long[] copy = accumulators.clone();
+        long[] secretStripes = secret.stripes();
+
+        byte[] lastStripe;
+        int lastStripeOffset;
+        if (bufferedSize >= STRIPE_LENGTH) {
+            int stripes = (bufferedSize - 1) / STRIPE_LENGTH;
+            consumeStripes(copy, stripesSoFar, buffer, 0, stripes);
+            lastStripe = buffer;
+            lastStripeOffset = bufferedSize - STRIPE_LENGTH;
+        }
+        else {
+            // stitch the tail of the previous bulk update together with the buffered bytes
+            lastStripe = new byte[STRIPE_LENGTH];
+            int catchup = STRIPE_LENGTH - bufferedSize;
+            System.arraycopy(buffer, BUFFER_SIZE - catchup, lastStripe, 0, catchup);
+            System.arraycopy(buffer, 0, lastStripe, catchup, bufferedSize);
+            lastStripeOffset = 0;
+        }
+
+        LongHashVector.accumulate(copy, lastStripe, lastStripeOffset, secretStripes, secret.lastStripeIndex());
+        return LongHashVector.merge(secret, totalLength, copy);
+    }
+
+    private void consumeStripes(byte[] input, int offset, int stripes)
+    {
+        stripesSoFar = consumeStripes(accumulators, stripesSoFar, input, offset, stripes);
+    }
+
+    private int consumeStripes(long[] accumulators, int stripesSoFar, byte[] input, int offset, int stripes)
+    {
+        long[] secretStripes = secret.stripes();
+        int stripesPerBlock = secret.stripesPerBlock();
+
+        if (stripesPerBlock - stripesSoFar <= stripes) {
+            int toEndOfBlock = stripesPerBlock - stripesSoFar;
+            for (int stripe = 0; stripe < toEndOfBlock; stripe++) {
+                LongHashVector.accumulate(accumulators, input, offset + stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripesSoFar + stripe));
+            }
+            LongHashVector.scramble(accumulators, secretStripes, secret.scrambleIndex());
+
+            int afterBlock = stripes - toEndOfBlock;
+            offset += toEndOfBlock * STRIPE_LENGTH;
+            for (int stripe = 0; stripe < afterBlock; stripe++) {
+                LongHashVector.accumulate(accumulators, input, offset + stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripe));
+            }
+            return afterBlock;
+        }
+
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            LongHashVector.accumulate(accumulators, input, offset + stripe * STRIPE_LENGTH, secretStripes, Secret.stripeIndex(stripesSoFar + stripe));
+        }
+        return stripesSoFar + stripes;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.weakref.xxh.Util.LONG_HANDLE;
+
+/**
+ * A Merkle tree over fixed-size leaves of a segment, for finding which byte ranges differ
+ * between two copies of the same data without comparing the data itself.
+ * <p>
+ * Leaves are the XXH3-128 hash of their bytes and are computed in parallel. Each inner node is
+ * the XXH3-128 hash of its children's hashes, serialized as four little-endian longs. A node
+ * without a right sibling is promoted to the next level unchanged.
+ */
+public final class Xxh3MerkleTree
+{
+    private static final int MAGIC = 0x584d_5431; // "XMT1"
+    private static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Long.BYTES;
+    // largest tree whose serialized form still fits in a byte array
+    private static final int MAX_LEAF_COUNT = (Integer.MAX_VALUE - 8 - HEADER_SIZE) / (2 * Long.BYTES);
+
+    private final int leafSize;
+    private final long dataSize;
+
+    // levels[0] holds the leaves, the last level holds the root; each node is a (low, high) pair
+    private final long[][] levels;
+
+    public record Range(long offset, long length) {}
+
+    private Xxh3MerkleTree(int leafSize, long dataSize, long[] leaves)
+    {
+        this.leafSize = leafSize;
+        this.dataSize = dataSize;
+
+        List<long[]> levels = new ArrayList<>();
+        levels.add(leaves);
+        while (levels.getLast().length > 2) {
+            long[] children = levels.getLast();
+            levels.add(new long[2 * ((nodeCount(children) + 1) / 2)]);
+        }
+        this.levels = levels.toArray(long[][]::new);
+
+        byte[] buffer = new byte[4 * Long.BYTES];
+        for (int level = 1; level < this.levels.length; level++) {
+            for (int node = 0; node < nodeCount(this.levels[level]); node++) {
+                updateNode(level, node, buffer);
+            }
+        }
+    }
+
+    public static Xxh3MerkleTree build(MemorySegment data, int leafSize)
+    {
+        if (leafSize <= 0) {
+            throw new IllegalArgumentException("leafSize must be positive: " + leafSize);
+        }
+
+        long leafCount = leafCount(data.byteSize(), leafSize);
+        if (leafCount > MAX_LEAF_COUNT) {
+            throw new IllegalArgumentException("Too many leaves: " + leafCount);
+        }
+
+        long[] leaves = new long[2 * (int) leafCount];
+        IntStream.range(0, (int) leafCount)
+                .parallel()
+                .forEach(leaf -> hashLeaf(data, leafSize, leaf, leaves));
+
+        return new Xxh3MerkleTree(leafSize, data.byteSize(), leaves);
+    }
+
+    public Hash128 root()
+    {
+        long[] root = levels[levels.length - 1];
+        return new Hash128(root[0], root[1]);
+    }
+
+    public int leafSize()
+    {
+        return leafSize;
+    }
+
+    public long dataSize()
+    {
+        return dataSize;
+    }
+
+    public int leafCount()
+    {
+        return nodeCount(levels[0]);
+    }
+
+    public Hash128 leaf(int index)
+    {
+        return new Hash128(levels[0][2 * index], levels[0][2 * index + 1]);
+    }
+
+    /**
+     * Rehashes the leaves covering {@code [offset, offset + length)} of {@code data}, which must
+     * be the segment this tree was built from (or one of the same size), and their ancestors.
+     */
+    public void update(MemorySegment data, long offset, long length)
+    {
+        if (data.byteSize() != dataSize) {
+            throw new IllegalArgumentException("Data size changed: " + data.byteSize() + " != " + dataSize);
+        }
+        Objects.checkFromIndexSize(offset, length, dataSize);
+        if (length == 0) {
+            return;
+        }
+
+        int first = (int) (offset / leafSize);
+        int last = (int) ((offset + length - 1) / leafSize);
+        IntStream.rangeClosed(first, last)
+                .parallel()
+                .forEach(leaf -> hashLeaf(data, leafSize, leaf, levels[0]));
+
+        byte[] buffer = new byte[4 * Long.BYTES];
+        for (int level = 1; level < levels.length; level++) {
+            first /= 2;
+            last /= 2;
+            for (int node = first; node <= last; node++) {
+                updateNode(level, node, buffer);
+            }
+        }
+    }
+
+    /**
+     * Returns the byte ranges whose leaves differ between the two trees, with adjacent leaves
+     * merged into one range. Only subtrees whose roots differ are visited.
+     */
+    public List<Range> diff(Xxh3MerkleTree other)
+    {
+        if (other.leafSize != leafSize || other.dataSize != dataSize) {
+            throw new IllegalArgumentException("Trees have a different shape");
+        }
+
+        List<Range> ranges = new ArrayList<>();
+        diff(other, levels.length - 1, 0, ranges);
+        return ranges;
+    }
+
+    private void diff(Xxh3MerkleTree other, int level, int node, List<Range> ranges)
+    {
+        long[] nodes = levels[level];
+        long[] otherNodes = other.levels[level];
+        if (nodes[2 * node] == otherNodes[2 * node] && nodes[2 * node + 1] == otherNodes[2 * node + 1]) {
+            return;
+        }
+
+        if (level == 0) {
+            long offset = (long) node * leafSize;
+            long length = Math.min(leafSize, dataSize - offset);
+            if (!ranges.isEmpty() && ranges.getLast().offset() + ranges.getLast().length() == offset) {
+                Range previous = ranges.removeLast();
+                ranges.add(new Range(previous.offset(), previous.length() + length));
+            }
+            else {
+                ranges.add(new Range(offset, length));
+            }
+            return;
+        }
+
+        diff(other, level - 1, 2 * node, ranges);
+        if (2 * node + 1 < nodeCount(levels[level - 1])) {
+            diff(other, level - 1, 2 * node + 1, ranges);
+        }
+    }
+
+    /**
+     * Serializes the tree as a small header followed by the leaf hashes. Inner nodes are
+     * recomputed on load, which is cheap compared to hashing the data.
+     */
+    public byte[] serialize()
+    {
+        long[] leaves = levels[0];
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + leaves.length * Long.BYTES).order(LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(leafSize);
+        buffer.putLong(dataSize);
+        buffer.asLongBuffer().put(leaves);
+        return buffer.array();
+    }
+
+    public static Xxh3MerkleTree deserialize(byte[] serialized)
+    {
+        ByteBuffer buffer = ByteBuffer.wrap(serialized).order(LITTLE_ENDIAN);
+        if (serialized.length < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a serialized Merkle tree");
+        }
+
+        int leafSize = buffer.getInt();
+        long dataSize = buffer.getLong();
+        if (leafSize <= 0 || dataSize < 0) {
+            throw new IllegalArgumentException("Corrupt serialized Merkle tree");
+        }
+        long leafCount = leafCount(dataSize, leafSize);
+        if (leafCount > MAX_LEAF_COUNT || buffer.remaining() != leafCount * 2 * Long.BYTES) {
+            throw new IllegalArgumentException("Corrupt serialized Merkle tree");
+        }
+
+        long[] leaves = new long[2 * (int) leafCount];
+        buffer.asLongBuffer().get(leaves);
+        return new Xxh3MerkleTree(leafSize, dataSize, leaves);
+    }
+
+    private static long leafCount(long dataSize, int leafSize)
+    {
+        // an empty segment still has one (empty) leaf
+        return dataSize == 0 ? 1 : (dataSize - 1) / leafSize + 1;
+    }
+
+    private static void hashLeaf(MemorySegment data, int leafSize, int leaf, long[] leaves)
+    {
+        long offset = (long) leaf * leafSize;
+        Hash128 hash = Xxh3.hash128(data, offset, Math.min(leafSize, data.byteSize() - offset));
+        leaves[2 * leaf] = hash.low();
+        leaves[2 * leaf + 1] = hash.high();
+    }
+
+    private void updateNode(int level, int node, byte[] buffer)
+    {
+        long[] children = levels[level - 1];
+        long[] nodes = levels[level];
+
+        int left = 2 * node;
+        int right = 2 * node + 1;
+        if (right >= nodeCount(children)) {
+            nodes[2 * node] = children[2 * left];
+            nodes[2 * node + 1] = children[2 * left + 1];
+            return;
+        }
+
+        LONG_HANDLE.set(buffer, 0, children[2 * left]);
+        LONG_HANDLE.set(buffer, 8, children[2 * left + 1]);
+        LONG_HANDLE.set(buffer, 16, children[2 * right]);
+        LONG_HANDLE.set(buffer, 24, children[2 * right + 1]);
+        Hash128 hash = Xxh3.hash128(buffer, 0, buffer.length);
+        nodes[2 * node] = hash.low();
+        nodes[2 * node + 1] = hash.high();
+    }
+
+    private static int nodeCount(long[] level)
+    {
+        return level.length / 2;
+    }
+}
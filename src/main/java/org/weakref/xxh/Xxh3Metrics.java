@@ -0,0 +1,303 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.lang.foreign.MemorySegment;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Optional per-size-class call counters and latency histograms for {@link Xxh3#hash64}.
+ * <p>
+ * Enabled with {@code -Dorg.weakref.xxh.metrics=true}. Since {@link #ENABLED} is a static final
+ * constant, the JIT removes the instrumentation entirely when it is off. Latency is sampled for
+ * one in every {@code -Dorg.weakref.xxh.metrics.latencySampleRate=N} calls (0, the default,
+ * disables latency sampling).
+ */
+public final class Xxh3Metrics
+{
+    static final boolean ENABLED = Boolean.getBoolean("org.weakref.xxh.metrics");
+    private static final int LATENCY_SAMPLE_RATE = Integer.getInteger("org.weakref.xxh.metrics.latencySampleRate", 0);
+
+    public enum SizeClass
+    {
+        EMPTY, SIZE_1_TO_3, SIZE_4_TO_8, SIZE_9_TO_16, SIZE_17_TO_128, SIZE_129_TO_240, LONG;
+
+        public static SizeClass of(long length)
+        {
+            if (length == 0) {
+                return EMPTY;
+            }
+            else if (length < 4) {
+                return SIZE_1_TO_3;
+            }
+            else if (length <= 8) {
+                return SIZE_4_TO_8;
+            }
+            else if (length <= 16) {
+                return SIZE_9_TO_16;
+            }
+            else if (length <= 128) {
+                return SIZE_17_TO_128;
+            }
+            else if (length <= 240) {
+                return SIZE_129_TO_240;
+            }
+            return LONG;
+        }
+    }
+
+    private static final SizeClass[] SIZE_CLASSES = SizeClass.values();
+    private static final LongAdder[] CALLS = newAdders();
+    private static final LongAdder[] BYTES = newAdders();
+    // only allocated when latency sampling is on
+    private static final LatencyHistogram[] LATENCIES = ENABLED && LATENCY_SAMPLE_RATE > 0 ? newHistograms() : null;
+
+    static long hash64(byte[] input, int offset, int length)
+    {
+        int sizeClass = count(length);
+        if (sampleLatency()) {
+            long start = System.nanoTime();
+            long hash = Xxh3.hash64Uninstrumented(input, offset, length);
+            LATENCIES[sizeClass].record(System.nanoTime() - start);
+            return hash;
+        }
+        return Xxh3.hash64Uninstrumented(input, offset, length);
+    }
+
+    static long hash64(MemorySegment input, long offset, long length)
+    {
+        int sizeClass = count(length);
+        if (sampleLatency()) {
+            long start = System.nanoTime();
+            long hash = Xxh3.hash64Uninstrumented(input, offset, length);
+            LATENCIES[sizeClass].record(System.nanoTime() - start);
+            return hash;
+        }
+        return Xxh3.hash64Uninstrumented(input, offset, length);
+    }
+
+    static long hash64(long[] values, int offset, int count)
+    {
+        int sizeClass = count((long) count * Long.BYTES);
+        if (sampleLatency()) {
+            long start = System.nanoTime();
+            long hash = Xxh3.hash64Uninstrumented(values, offset, count);
+            LATENCIES[sizeClass].record(System.nanoTime() - start);
+            return hash;
+        }
+        return Xxh3.hash64Uninstrumented(values, offset, count);
+    }
+
+    static long hash64(double[] values, int offset, int count)
+    {
+        int sizeClass = count((long) count * Double.BYTES);
+        if (sampleLatency()) {
+            long start = System.nanoTime();
+            long hash = Xxh3.hash64Uninstrumented(values, offset, count);
+            LATENCIES[sizeClass].record(System.nanoTime() - start);
+            return hash;
+        }
+        return Xxh3.hash64Uninstrumented(values, offset, count);
+    }
+
+    static long hash64(int[] values, int offset, int count)
+    {
+        int sizeClass = count((long) count * Integer.BYTES);
+        if (sampleLatency()) {
+            long start = System.nanoTime();
+            long hash = Xxh3.hash64Uninstrumented(values, offset, count);
+            LATENCIES[sizeClass].record(System.nanoTime() - start);
+            return hash;
+        }
+        return Xxh3.hash64Uninstrumented(values, offset, count);
+    }
+
+    static long hash64(char[] values, int offset, int count)
+    {
+        int sizeClass = count((long) count * Character.BYTES);
+        if (sampleLatency()) {
+            long start = System.nanoTime();
+            long hash = Xxh3.hash64Uninstrumented(values, offset, count);
+            LATENCIES[sizeClass].record(System.nanoTime() - start);
+            return hash;
+        }
+        return Xxh3.hash64Uninstrumented(values, offset, count);
+    }
+
+    private static int count(long length)
+    {
+        int sizeClass = SizeClass.of(length).ordinal();
+        CALLS[sizeClass].increment();
+        BYTES[sizeClass].add(length);
+        return sizeClass;
+    }
+
+    private static boolean sampleLatency()
+    {
+        return LATENCIES != null && ThreadLocalRandom.current().nextInt(LATENCY_SAMPLE_RATE) == 0;
+    }
+
+    public static boolean isEnabled()
+    {
+        return ENABLED;
+    }
+
+    public static Map<SizeClass, SizeClassStats> snapshot()
+    {
+        Map<SizeClass, SizeClassStats> result = new EnumMap<>(SizeClass.class);
+        for (SizeClass sizeClass : SIZE_CLASSES) {
+            int i = sizeClass.ordinal();
+            if (LATENCIES == null) {
+                result.put(sizeClass, new SizeClassStats(CALLS[i].sum(), BYTES[i].sum(), 0, 0, 0, 0, 0));
+                continue;
+            }
+
+            LatencyHistogram latency = LATENCIES[i];
+            result.put(sizeClass, new SizeClassStats(
+                    CALLS[i].sum(),
+                    BYTES[i].sum(),
+                    latency.count(),
+                    latency.percentile(0.5),
+                    latency.percentile(0.99),
+                    latency.percentile(0.999),
+                    latency.max()));
+        }
+        return result;
+    }
+
+    public static void reset()
+    {
+        for (int i = 0; i < SIZE_CLASSES.length; i++) {
+            CALLS[i].reset();
+            BYTES[i].reset();
+            if (LATENCIES != null) {
+                LATENCIES[i].reset();
+            }
+        }
+    }
+
+    private static LongAdder[] newAdders()
+    {
+        LongAdder[] adders = new LongAdder[SizeClass.values().length];
+        for (int i = 0; i < adders.length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static LatencyHistogram[] newHistograms()
+    {
+        LatencyHistogram[] histograms = new LatencyHistogram[SizeClass.values().length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        return histograms;
+    }
+
+    /**
+     * Latency percentiles are in nanoseconds and are only collected when latency sampling is on.
+     */
+    public record SizeClassStats(long calls, long bytes, long latencySamples, long latencyP50, long latencyP99, long latencyP999, long latencyMax) {}
+
+    /**
+     * Log-linear histogram in the style of HdrHistogram: each power of two is split into
+     * 2^SUB_BUCKET_BITS linear buckets, which bounds the relative error to about 3%.
+     */
+    static final class LatencyHistogram
+    {
+        private static final int SUB_BUCKET_BITS = 5;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray counts = new AtomicLongArray((Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKETS);
+
+        void record(long value)
+        {
+            counts.incrementAndGet(index(Math.max(0, value)));
+        }
+
+        long count()
+        {
+            long count = 0;
+            for (int i = 0; i < counts.length(); i++) {
+                count += counts.get(i);
+            }
+            return count;
+        }
+
+        long percentile(double percentile)
+        {
+            long[] snapshot = new long[counts.length()];
+            long total = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                snapshot[i] = counts.get(i);
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long rank = (long) Math.ceil(percentile * total);
+            long seen = 0;
+            for (int i = 0; i < snapshot.length; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return highestValue(i);
+                }
+            }
+            return highestValue(snapshot.length - 1);
+        }
+
+        long max()
+        {
+            for (int i = counts.length() - 1; i >= 0; i--) {
+                if (counts.get(i) != 0) {
+                    return highestValue(i);
+                }
+            }
+            return 0;
+        }
+
+        void reset()
+        {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, 0);
+            }
+        }
+
+        static int index(long value)
+        {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+            int shift = exponent - SUB_BUCKET_BITS;
+            int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+            return (shift + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        static long highestValue(int index)
+        {
+            if (index < SUB_BUCKETS) {
+                return index;
+            }
+            int shift = index / SUB_BUCKETS - 1;
+            long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+            return ((subBucket + 1) << shift) - 1;
+        }
+    }
+}
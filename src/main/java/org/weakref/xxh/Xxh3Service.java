@@ -0,0 +1,142 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+
+/**
+ * Hashes many inputs concurrently. Each job runs on its own virtual thread, so jobs blocked on
+ * I/O are cheap, while a semaphore caps how many of them hash at the same time (by default,
+ * one per available processor).
+ */
+public final class Xxh3Service
+        implements AutoCloseable
+{
+    private static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore hashingPermits;
+    private final int chunkSize;
+    private final Updater updater;
+
+    interface Updater
+    {
+        void update(Xxh3Hasher hasher, byte[] data, int offset, int length);
+    }
+
+    public Xxh3Service()
+    {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+    public Xxh3Service(int maxConcurrentHashing, int chunkSize)
+    {
+        this(maxConcurrentHashing, chunkSize, Xxh3Hasher::update);
+    }
+
+    Xxh3Service(int maxConcurrentHashing, int chunkSize, Updater updater)
+    {
+        if (maxConcurrentHashing <= 0) {
+            throw new IllegalArgumentException("maxConcurrentHashing must be positive: " + maxConcurrentHashing);
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+
+        this.hashingPermits = new Semaphore(maxConcurrentHashing);
+        this.chunkSize = chunkSize;
+        this.updater = updater;
+    }
+
+    /**
+     * Reads the channel to the end and completes with the hash of its contents. The channel
+     * must be in blocking mode, and is not closed.
+     */
+    public CompletableFuture<Long> submit(ReadableByteChannel channel)
+    {
+        return CompletableFuture.supplyAsync(() -> hash(channel), executor);
+    }
+
+    public CompletableFuture<Long> submit(MemorySegment segment)
+    {
+        return CompletableFuture.supplyAsync(() -> hash(segment), executor);
+    }
+
+    private long hash(ReadableByteChannel channel)
+    {
+        Xxh3Hasher hasher = new Xxh3Hasher();
+        ByteBuffer buffer = ByteBuffer.allocate(chunkSize);
+        try {
+            boolean done = false;
+            while (!done) {
+                // fill a whole chunk before hashing so permits are taken per chunk, not per read
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer) < 0) {
+                        done = true;
+                        break;
+                    }
+                }
+
+                buffer.flip();
+                if (buffer.hasRemaining()) {
+                    update(hasher, buffer.array(), 0, buffer.limit());
+                }
+                buffer.clear();
+            }
+            return hasher.digest();
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private long hash(MemorySegment segment)
+    {
+        Xxh3Hasher hasher = new Xxh3Hasher();
+        byte[] chunk = new byte[(int) Math.min(segment.byteSize(), chunkSize)];
+        for (long position = 0; position < segment.byteSize(); position += chunk.length) {
+            int length = (int) Math.min(segment.byteSize() - position, chunk.length);
+            MemorySegment.copy(segment, JAVA_BYTE, position, chunk, 0, length);
+            update(hasher, chunk, 0, length);
+        }
+        return hasher.digest();
+    }
+
+    private void update(Xxh3Hasher hasher, byte[] data, int offset, int length)
+    {
+        hashingPermits.acquireUninterruptibly();
+        try {
+            updater.update(hasher, data, offset, length);
+        }
+        finally {
+            hashingPermits.release();
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        executor.close();
+    }
+}
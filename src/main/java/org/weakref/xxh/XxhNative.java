@@ -16,7 +16,9 @@ package org.weakref.xxh;
 import java.lang.foreign.Arena;
 import java.lang.foreign.FunctionDescriptor;
 import java.lang.foreign.Linker;
+import java.lang.foreign.MemoryLayout;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SegmentAllocator;
 import java.lang.foreign.SymbolLookup;
 import java.lang.foreign.ValueLayout;
 import java.lang.invoke.MethodHandle;
@@ -26,6 +28,7 @@ public class XxhNative
 {
     private final static MethodHandle XXH64;
     private final static MethodHandle XXH3;
+    private final static MethodHandle XXH128;
 
     static {
         String library = switch (platform()) {
@@ -54,6 +57,15 @@ public class XxhNative
                                 FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG),
                                 Linker.Option.critical(true)))
                 .get();
+
+        // XXH_PUBLIC_API XXH128_hash_t XXH3_128bits(XXH_NOESCAPE const void* data, size_t len)
+        XXH128 = lookup.find("XXH3_128bits")
+                .map(location -> Linker.nativeLinker()
+                        .downcallHandle(
+                                location,
+                                FunctionDescriptor.of(MemoryLayout.structLayout(ValueLayout.JAVA_LONG, ValueLayout.JAVA_LONG), ValueLayout.ADDRESS, ValueLayout.JAVA_LONG),
+                                Linker.Option.critical(true)))
+                .get();
     }
 
     private static String platform()
@@ -91,10 +103,14 @@ public class XxhNative
         }
     }
 
-    public static void main(String[] args)
+    public static Hash128 xxh128(MemorySegment data)
     {
-        MemorySegment buffer = MemorySegment.ofArray(new byte[100]);
-
-        System.out.println(XxhNative.xxh64(buffer));
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment result = (MemorySegment) XXH128.invokeExact((SegmentAllocator) arena, data, data.byteSize());
+            return new Hash128(result.get(ValueLayout.JAVA_LONG, 0), result.get(ValueLayout.JAVA_LONG, 8));
+        }
+        catch (Throwable e) {
+            throw new RuntimeException(e);
+        }
     }
 }
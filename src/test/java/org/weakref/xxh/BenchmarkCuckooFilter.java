@@ -0,0 +1,158 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OperationsPerInvocation(BenchmarkCuckooFilter.BATCH)
+public class BenchmarkCuckooFilter
+{
+    static final int BATCH = 1024;
+    private static final int POOL = 1 << 20;
+
+    @Param({
+            "1000000",
+            "100000000"
+    })
+    public int entries;
+
+    private CuckooFilter cuckoo;
+    private BlockedBloomFilter bloom;
+
+    // alternating present and absent keys, so lookups see a 50% hit rate
+    private final long[] keys = new long[POOL];
+    private int position;
+    private SplittableRandom random;
+
+    private final long[] lookups = new long[BATCH];
+    private final long[] churn = new long[BATCH];
+    private final boolean[] result = new boolean[BATCH];
+
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        cuckoo = new CuckooFilter(entries);
+        bloom = new BlockedBloomFilter(entries, 0.01);
+
+        random = new SplittableRandom(0);
+        int stride = Math.max(1, entries / (POOL / 2));
+        for (int i = 0; i < entries; i++) {
+            long hash = random.nextLong();
+            cuckoo.add(hash);
+            bloom.put(hash);
+            if (i % stride == 0 && i / stride < POOL / 2) {
+                keys[2 * (i / stride)] = hash;
+            }
+        }
+        for (int i = 1; i < POOL; i += 2) {
+            keys[i] = random.nextLong();
+        }
+    }
+
+    @Benchmark
+    public boolean[] cuckooLookup()
+    {
+        nextLookups();
+        for (int i = 0; i < BATCH; i++) {
+            result[i] = cuckoo.mightContain(lookups[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] cuckooLookupBatch()
+    {
+        nextLookups();
+        cuckoo.mightContain(lookups, BATCH, result);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] bloomLookup()
+    {
+        nextLookups();
+        for (int i = 0; i < BATCH; i++) {
+            result[i] = bloom.mightContain(lookups[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] cuckooInsertRemove()
+    {
+        nextChurn();
+        cuckoo.add(churn, BATCH, result);
+        for (int i = 0; i < BATCH; i++) {
+            cuckoo.remove(churn[i]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] bloomInsert()
+    {
+        nextChurn();
+        for (int i = 0; i < BATCH; i++) {
+            bloom.put(churn[i]);
+        }
+        return result;
+    }
+
+    private void nextLookups()
+    {
+        System.arraycopy(keys, position, lookups, 0, BATCH);
+        position = (position + BATCH) & (POOL - 1);
+    }
+
+    private void nextChurn()
+    {
+        for (int i = 0; i < BATCH; i++) {
+            churn[i] = random.nextLong();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkCuckooFilter.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
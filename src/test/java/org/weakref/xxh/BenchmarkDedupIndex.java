@@ -0,0 +1,122 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OperationsPerInvocation(BenchmarkDedupIndex.BATCH)
+public class BenchmarkDedupIndex
+{
+    static final int BATCH = 1024;
+
+    @Param({
+            "100000000",
+            "1000000000"
+    })
+    public long entries;
+
+    @Param("16777216")
+    public int memoryEntries;
+
+    private Path directory;
+    private DedupIndex index;
+    private SplittableRandom random;
+
+    private final long[] lows = new long[BATCH];
+    private final long[] highs = new long[BATCH];
+    private final boolean[] result = new boolean[BATCH];
+
+    @Setup(Level.Trial)
+    public void setup()
+            throws IOException
+    {
+        directory = Files.createTempDirectory("dedup");
+        index = new DedupIndex(directory, memoryEntries);
+        random = new SplittableRandom(0);
+        for (long i = 0; i < entries; i += BATCH) {
+            nextBatch();
+            index.add(lows, highs, BATCH, result);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+            throws IOException
+    {
+        index.close();
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public boolean[] insert()
+    {
+        nextBatch();
+        index.add(lows, highs, BATCH, result);
+        return result;
+    }
+
+    @Benchmark
+    public boolean[] lookup()
+    {
+        nextBatch();
+        index.contains(lows, highs, BATCH, result);
+        return result;
+    }
+
+    private void nextBatch()
+    {
+        for (int i = 0; i < BATCH; i++) {
+            lows[i] = random.nextLong();
+            highs[i] = random.nextLong();
+        }
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkDedupIndex.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
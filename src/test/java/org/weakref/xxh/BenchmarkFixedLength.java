@@ -0,0 +1,92 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare AVX2 and AVX-512 by running with {@code -XX:UseAVX=2} and {@code -XX:UseAVX=3}.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@OperationsPerInvocation(BenchmarkFixedLength.KEYS)
+public class BenchmarkFixedLength
+{
+    static final int KEYS = 1024;
+
+    @Param({
+            "16",
+            "32",
+            "64",
+            "128"
+    })
+    public int keyLength;
+    private byte[] slab;
+    private long[] result;
+
+    @Setup
+    public void setup()
+    {
+        slab = new byte[keyLength * KEYS];
+        new Random(0).nextBytes(slab);
+        result = new long[KEYS];
+    }
+
+    @Benchmark
+    public long[] hashFixed()
+    {
+        Xxh3.hashFixed(slab, keyLength, KEYS, result);
+        return result;
+    }
+
+    @Benchmark
+    public long[] hash64()
+    {
+        for (int i = 0; i < KEYS; i++) {
+            result[i] = Xxh3.hash64(slab, i * keyLength, keyLength);
+        }
+        return result;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkFixedLength.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
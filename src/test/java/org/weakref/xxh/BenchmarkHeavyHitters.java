@@ -0,0 +1,132 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Concurrent update throughput. {@link #main} runs the benchmarks at 1 to 64 threads, all
+ * sharing one sketch; keys follow a Zipf-like distribution so a few hot keys dominate.
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@OperationsPerInvocation(BenchmarkHeavyHitters.BATCH)
+public class BenchmarkHeavyHitters
+{
+    static final int BATCH = 1024;
+    private static final int BATCHES = 1024;
+
+    @Param({"1", "0"})
+    public int stripes;
+
+    private CountMinSketch sketch;
+    private HeavyHitters heavyHitters;
+
+    // BATCHES batches of keys, each batch laid out as a slab and offsets
+    private byte[][] slabs;
+    private int[][] offsets;
+
+    @State(Scope.Thread)
+    public static class Cursor
+    {
+        private int batch;
+
+        @Setup
+        public void setup()
+        {
+            batch = (int) Thread.currentThread().threadId() & (BATCHES - 1);
+        }
+
+        int next()
+        {
+            batch = (batch + 1) & (BATCHES - 1);
+            return batch;
+        }
+    }
+
+    @Setup
+    public void setup()
+    {
+        // zero stripes means one per available processor
+        int stripeCount = stripes == 0 ? Runtime.getRuntime().availableProcessors() : stripes;
+        sketch = new CountMinSketch(4, 1 << 16, stripeCount);
+        heavyHitters = new HeavyHitters(100, new CountMinSketch(4, 1 << 16, stripeCount));
+
+        SplittableRandom random = new SplittableRandom(0);
+        slabs = new byte[BATCHES][];
+        offsets = new int[BATCHES][BATCH + 1];
+        for (int batch = 0; batch < BATCHES; batch++) {
+            StringBuilder keys = new StringBuilder();
+            for (int i = 0; i < BATCH; i++) {
+                // log-uniform ranks approximate a Zipf distribution with exponent 1
+                long rank = (long) Math.pow(1_000_000, random.nextDouble());
+                keys.append("key-").append(rank);
+                offsets[batch][i + 1] = keys.length();
+            }
+            slabs[batch] = keys.toString().getBytes(UTF_8);
+        }
+    }
+
+    @Benchmark
+    public long sketch(Cursor cursor)
+    {
+        int batch = cursor.next();
+        sketch.add(slabs[batch], offsets[batch], BATCH);
+        return batch;
+    }
+
+    @Benchmark
+    public long heavyHitters(Cursor cursor)
+    {
+        int batch = cursor.next();
+        heavyHitters.add(slabs[batch], offsets[batch], BATCH);
+        return batch;
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            Options options = new OptionsBuilder()
+                    .verbosity(VerboseMode.NORMAL)
+                    .include(".*" + BenchmarkHeavyHitters.class.getSimpleName() + ".*")
+                    .threads(threads)
+                    .build();
+
+            new Runner(options).run();
+        }
+    }
+}
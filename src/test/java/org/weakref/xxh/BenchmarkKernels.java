@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The long-input kernels side by side with native XXH3. Sizes start just above the 240-byte
+ * midsize limit, below which the kernels do not apply.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkKernels
+{
+    @Param({
+            "241",
+            "1024",
+            "4096",
+            "16384",
+            "65536",
+            "1048576",
+            "16777216"
+    })
+    public int size;
+    private byte[] data;
+    private MemorySegment segment;
+
+    @Setup
+    public void setup()
+    {
+        data = new byte[size];
+        new Random(0).nextBytes(data);
+        segment = MemorySegment.ofArray(data);
+    }
+
+    @Benchmark
+    public long scalar()
+    {
+        return LongHashScalar.hash(data, 0, data.length);
+    }
+
+    @Benchmark
+    public long unrolled()
+    {
+        return LongHashUnrolled.hash(data, 0, data.length);
+    }
+
+    @Benchmark
+    public long vector()
+    {
+        return LongHashVector.hash(data, 0, data.length);
+    }
+
+    @Benchmark
+    public long xxh3Java()
+    {
+        return Xxh3.hash64(data, 0, data.length);
+    }
+
+    @Benchmark
+    public long xxh3Native()
+    {
+        return XxhNative.xxh3(segment);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkKernels.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
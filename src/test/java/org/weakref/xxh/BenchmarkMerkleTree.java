@@ -0,0 +1,140 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static java.nio.channels.FileChannel.MapMode.READ_WRITE;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 10, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 3, time = 10, timeUnit = TimeUnit.SECONDS)
+public class BenchmarkMerkleTree
+{
+    @Param({
+            "1073741824",
+            "10737418240"
+    })
+    public long size;
+
+    @Param({"65536", "1048576"})
+    public int leafSize;
+
+    private Path file;
+    private Arena arena;
+    private MemorySegment data;
+    private Xxh3MerkleTree tree;
+    private Xxh3MerkleTree modified;
+
+    @Setup(Level.Trial)
+    public void setup()
+            throws IOException
+    {
+        file = Files.createTempFile("merkle", ".bin");
+        arena = Arena.ofShared();
+
+        byte[] block = new byte[1 << 20];
+        new Random(0).nextBytes(block);
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE, CREATE)) {
+            for (long position = 0; position < size; position += block.length) {
+                channel.write(ByteBuffer.wrap(block, 0, (int) Math.min(block.length, size - position)), position);
+            }
+            data = channel.map(READ_WRITE, 0, size, arena);
+        }
+
+        tree = Xxh3MerkleTree.build(data, leafSize);
+
+        // a handful of scattered single-byte changes, as from a sparse rewrite
+        for (int i = 1; i <= 16; i++) {
+            long offset = size / 17 * i;
+            data.set(JAVA_BYTE, offset, (byte) (data.get(JAVA_BYTE, offset) + 1));
+        }
+        modified = Xxh3MerkleTree.build(data, leafSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+            throws IOException
+    {
+        arena.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public Hash128 build()
+    {
+        return Xxh3MerkleTree.build(data, leafSize).root();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<Xxh3MerkleTree.Range> diff()
+    {
+        return modified.diff(tree);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Hash128 updateLeaf()
+    {
+        modified.update(data, size / 2, 1);
+        return modified.root();
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkMerkleTree.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.lang.foreign.MemorySegment;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashes the same bytes as a byte[] and as long[], double[] and int[] values, to check that
+ * the primitive-array entry points are no slower than hashing the serialized bytes.
+ */
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkPrimitiveArrays
+{
+    @Param({
+            "16",
+            "30",
+            "128",
+            "1024",
+            "131072"
+    })
+    public int longs;
+
+    private byte[] bytes;
+    private long[] longValues;
+    private double[] doubleValues;
+    private int[] intValues;
+
+    @Setup
+    public void setup()
+    {
+        bytes = new byte[longs * Long.BYTES];
+        ThreadLocalRandom.current().nextBytes(bytes);
+
+        longValues = new long[longs];
+        doubleValues = new double[longs];
+        intValues = new int[longs * 2];
+        MemorySegment source = MemorySegment.ofArray(bytes);
+        MemorySegment.copy(source, 0, MemorySegment.ofArray(longValues), 0, bytes.length);
+        MemorySegment.copy(source, 0, MemorySegment.ofArray(doubleValues), 0, bytes.length);
+        MemorySegment.copy(source, 0, MemorySegment.ofArray(intValues), 0, bytes.length);
+    }
+
+    @Benchmark
+    public long byteArray()
+    {
+        return Xxh3.hash64(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public long longArray()
+    {
+        return Xxh3.hash64(longValues, 0, longValues.length);
+    }
+
+    @Benchmark
+    public long doubleArray()
+    {
+        return Xxh3.hash64(doubleValues, 0, doubleValues.length);
+    }
+
+    @Benchmark
+    public long intArray()
+    {
+        return Xxh3.hash64(intValues, 0, intValues.length);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkPrimitiveArrays.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+@State(Scope.Thread)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+@Measurement(iterations = 10, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class BenchmarkStrings
+{
+    @Param({
+            "8",
+            "32",
+            "256",
+            "4096"
+    })
+    public int length;
+
+    @Param({
+            "ascii",
+            "latin1",
+            "bmp"
+    })
+    public String alphabet;
+
+    private String value;
+
+    @Setup
+    public void setup()
+    {
+        int bound = switch (alphabet) {
+            case "ascii" -> 0x80;
+            case "latin1" -> 0x100;
+            case "bmp" -> 0xD800;
+            default -> throw new IllegalArgumentException(alphabet);
+        };
+
+        Random random = new Random(0);
+        char[] chars = new char[length];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) random.nextInt(bound);
+        }
+        value = new String(chars);
+    }
+
+    @Benchmark
+    public long getBytesUtf8()
+    {
+        byte[] bytes = value.getBytes(UTF_8);
+        return Xxh3.hash64(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public long hashString()
+    {
+        return Xxh3.hashString(value);
+    }
+
+    @Benchmark
+    public long getBytesUtf16()
+    {
+        byte[] bytes = value.getBytes(UTF_16LE);
+        return Xxh3.hash64(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public long hashChars()
+    {
+        return Xxh3.hashChars(value);
+    }
+
+    public static void main(String[] args)
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.NORMAL)
+                .include(".*" + BenchmarkStrings.class.getSimpleName() + ".*")
+                .build();
+
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.VerboseMode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Runs every kernel and native XXH3 across the size sweep of {@link BenchmarkKernels} and
+ * {@link BenchmarkXxh3}, and compares the throughput against a JSON baseline from a previous
+ * run, typically on the JDK before an upgrade.
+ * <pre>
+ * PerformanceRegression &lt;baseline.json&gt; [--threshold 0.10] [--update]
+ * </pre>
+ * The baseline is written when it does not exist or {@code --update} is given. Otherwise the
+ * process exits with status 1 if any benchmark lost more than the threshold fraction of its
+ * baseline throughput.
+ */
+public class PerformanceRegression
+{
+    private static final Pattern ENTRY = Pattern.compile("\"([^\"]+)\"\\s*:\\s*([-+0-9.eE]+)");
+
+    public static void main(String[] args)
+            throws RunnerException, IOException
+    {
+        if (args.length == 0) {
+            System.err.println("Usage: PerformanceRegression <baseline.json> [--threshold <fraction>] [--update]");
+            System.exit(2);
+        }
+
+        Path baselineFile = Path.of(args[0]);
+        double threshold = 0.10;
+        boolean update = false;
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threshold" -> threshold = Double.parseDouble(args[++i]);
+                case "--update" -> update = true;
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Map<String, Double> current = run();
+
+        if (update || !Files.exists(baselineFile)) {
+            Files.writeString(baselineFile, toJson(current), UTF_8);
+            System.out.printf("Wrote baseline for %d benchmarks to %s%n", current.size(), baselineFile);
+            return;
+        }
+
+        Map<String, Double> baseline = parseJson(Files.readString(baselineFile, UTF_8));
+        int regressions = 0;
+        System.out.printf("%-32s %16s %16s %8s %10s%n", "Benchmark", "Baseline ops/s", "Current ops/s", "Change", "vs native");
+        for (Map.Entry<String, Double> entry : current.entrySet()) {
+            String key = entry.getKey();
+            double score = entry.getValue();
+            Double previous = baseline.get(key);
+            Double nativeScore = current.get(key.replaceFirst("\\.[^.:]+:", ".xxh3Native:"));
+
+            String change = previous == null ? "new" : "%+.1f%%".formatted((score / previous - 1) * 100);
+            String relative = nativeScore == null ? "" : "%.2fx".formatted(score / nativeScore);
+            boolean regressed = previous != null && score < previous * (1 - threshold);
+            if (regressed) {
+                regressions++;
+            }
+
+            System.out.printf("%-32s %16s %16.0f %8s %10s%s%n",
+                    key,
+                    previous == null ? "-" : "%.0f".formatted(previous),
+                    score,
+                    change,
+                    relative,
+                    regressed ? "  REGRESSED" : "");
+        }
+
+        if (regressions > 0) {
+            System.out.printf("%d benchmarks regressed by more than %.0f%% against %s (baseline JDK %s, current JDK %s)%n",
+                    regressions,
+                    threshold * 100,
+                    baselineFile,
+                    jdkVersion(Files.readString(baselineFile, UTF_8)),
+                    Runtime.version());
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, Double> run()
+            throws RunnerException
+    {
+        Options options = new OptionsBuilder()
+                .verbosity(VerboseMode.SILENT)
+                .include(BenchmarkKernels.class.getName() + "\\.")
+                .include(BenchmarkXxh3.class.getName() + "\\.xxh3(Java|Native)$")
+                .build();
+
+        // keyed by class, method and size, e.g. "BenchmarkKernels.vector:4096"
+        Map<String, Double> scores = new TreeMap<>();
+        for (RunResult result : new Runner(options).run()) {
+            String benchmark = result.getParams().getBenchmark();
+            String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            scores.put(name + ":" + result.getParams().getParam("size"), result.getPrimaryResult().getScore());
+        }
+        return scores;
+    }
+
+    private static String toJson(Map<String, Double> scores)
+    {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n");
+        json.append("  \"jdk\": \"").append(Runtime.version()).append("\",\n");
+        json.append("  \"scores\": {\n");
+        int remaining = scores.size();
+        for (Map.Entry<String, Double> entry : scores.entrySet()) {
+            json.append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue());
+            json.append(--remaining > 0 ? ",\n" : "\n");
+        }
+        json.append("  }\n");
+        json.append("}\n");
+        return json.toString();
+    }
+
+    private static Map<String, Double> parseJson(String json)
+    {
+        Map<String, Double> scores = new TreeMap<>();
+        Matcher matcher = ENTRY.matcher(json);
+        while (matcher.find()) {
+            scores.put(matcher.group(1), Double.parseDouble(matcher.group(2)));
+        }
+        return scores;
+    }
+
+    private static String jdkVersion(String json)
+    {
+        Matcher matcher = Pattern.compile("\"jdk\"\\s*:\\s*\"([^\"]*)\"").matcher(json);
+        return matcher.find() ? matcher.group(1) : "unknown";
+    }
+}
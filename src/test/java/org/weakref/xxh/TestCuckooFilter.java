@@ -0,0 +1,107 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestCuckooFilter
+{
+    @Test
+    public void testAddRemove()
+    {
+        int entries = 1_000_000;
+        CuckooFilter filter = new CuckooFilter(entries);
+
+        long[] hashes = new long[entries];
+        boolean[] result = new boolean[entries];
+        SplittableRandom random = new SplittableRandom(0);
+        for (int i = 0; i < entries; i++) {
+            hashes[i] = random.nextLong();
+        }
+
+        filter.add(hashes, entries, result);
+        assertThat(result).doesNotContain(false);
+        assertThat(filter.size()).isEqualTo(entries);
+
+        filter.mightContain(hashes, entries, result);
+        assertThat(result).doesNotContain(false);
+
+        // remove the even keys
+        for (int i = 0; i < entries; i += 2) {
+            assertThat(filter.remove(hashes[i])).isTrue();
+        }
+        assertThat(filter.size()).isEqualTo(entries / 2);
+
+        int falsePositives = 0;
+        for (int i = 0; i < entries; i++) {
+            if (i % 2 == 1) {
+                assertThat(filter.mightContain(hashes[i])).isTrue();
+            }
+            else if (filter.mightContain(hashes[i])) {
+                falsePositives++;
+            }
+        }
+        assertThat(falsePositives).isLessThan(entries / 2 / 1000);
+    }
+
+    @Test
+    public void testFull()
+    {
+        CuckooFilter filter = new CuckooFilter(1000);
+
+        long[] hashes = new long[10_000];
+        SplittableRandom random = new SplittableRandom(1);
+        int added = 0;
+        while (added < hashes.length) {
+            hashes[added] = random.nextLong();
+            if (!filter.add(hashes[added])) {
+                break;
+            }
+            added++;
+        }
+
+        assertThat(added).isGreaterThanOrEqualTo(1000);
+        assertThat(added).isLessThan(hashes.length);
+        for (int i = 0; i < added; i++) {
+            assertThat(filter.mightContain(hashes[i])).isTrue();
+        }
+
+        // freeing space makes room again
+        for (int i = 0; i < added; i++) {
+            assertThat(filter.remove(hashes[i])).isTrue();
+        }
+        assertThat(filter.size()).isZero();
+        assertThat(filter.add(hashes[added])).isTrue();
+    }
+
+    @Test
+    public void testKeys()
+    {
+        CuckooFilter filter = new CuckooFilter(100);
+        byte[] key = "hello world".getBytes();
+        assertThat(filter.mightContain(key, 0, key.length)).isFalse();
+        assertThat(filter.add(key, 0, key.length)).isTrue();
+        assertThat(filter.add(key, 0, key.length)).isTrue();
+        assertThat(filter.mightContain(key, 0, key.length)).isTrue();
+        assertThat(filter.remove(key, 0, key.length)).isTrue();
+        assertThat(filter.mightContain(key, 0, key.length)).isTrue();
+        assertThat(filter.remove(key, 0, key.length)).isTrue();
+        assertThat(filter.mightContain(key, 0, key.length)).isFalse();
+        assertThat(filter.remove(key, 0, key.length)).isFalse();
+    }
+}
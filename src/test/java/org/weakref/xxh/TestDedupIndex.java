@@ -0,0 +1,104 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestDedupIndex
+{
+    @Test
+    public void testSpilledRuns()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("dedup");
+        Random random = new Random(0);
+        Set<Long> seen = new HashSet<>();
+
+        long[] lows = new long[500];
+        long[] highs = new long[500];
+        boolean[] added = new boolean[500];
+        try (DedupIndex index = new DedupIndex(directory, 1000)) {
+            for (int round = 0; round < 200; round++) {
+                // keys repeat within and across batches; key 0 maps to the all-zero fingerprint
+                for (int i = 0; i < lows.length; i++) {
+                    long key = random.nextInt(60_000);
+                    lows[i] = key * 0x9E3779B97F4A7C15L;
+                    highs[i] = key;
+                }
+
+                index.add(lows, highs, lows.length, added);
+                for (int i = 0; i < lows.length; i++) {
+                    assertThat(added[i])
+                            .describedAs("Round: %d, Key: %d", round, highs[i])
+                            .isEqualTo(seen.add(highs[i]));
+                }
+            }
+
+            assertThat(index.size()).isEqualTo(seen.size());
+            assertThat(index.runCount()).isGreaterThan(1);
+            for (long key = 0; key < 60_000; key++) {
+                assertThat(index.contains(key * 0x9E3779B97F4A7C15L, key)).isEqualTo(seen.contains(key));
+            }
+        }
+
+        try (var files = Files.list(directory)) {
+            assertThat(files).isEmpty();
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testRecords()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("dedup");
+        try (DedupIndex index = new DedupIndex(directory, 16)) {
+            byte[] data = new byte[1000];
+            new Random(0).nextBytes(data);
+
+            for (int length = 0; length < data.length; length++) {
+                assertThat(index.add(data, 0, length)).isTrue();
+            }
+            for (int length = 0; length < data.length; length++) {
+                assertThat(index.add(data, 0, length)).isFalse();
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testCloseTwice()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("dedup");
+        DedupIndex index = new DedupIndex(directory, 16);
+        for (long i = 0; i < 100; i++) {
+            index.add(i, i);
+        }
+        assertThat(index.runCount()).isGreaterThan(0);
+
+        index.close();
+        index.close();
+        Files.delete(directory);
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestHashCache
+{
+    @Test
+    public void testHitsAndMisses()
+    {
+        HashCache cache = new HashCache(1024);
+        byte[] first = "hello world".getBytes();
+        byte[] second = "hello world".getBytes();
+
+        assertThat(cache.hash64(first, 0, first.length)).isEqualTo(Xxh3.hash64(first, 0, first.length));
+        assertThat(cache.hash64(first, 0, first.length)).isEqualTo(Xxh3.hash64(first, 0, first.length));
+        assertThat(cache.hash64(first, 0, first.length)).isEqualTo(Xxh3.hash64(first, 0, first.length));
+
+        // keyed by identity and bounds, not contents
+        assertThat(cache.hash64(second, 0, second.length)).isEqualTo(Xxh3.hash64(second, 0, second.length));
+        assertThat(cache.hash64(first, 1, 5)).isEqualTo(Xxh3.hash64(first, 1, 5));
+
+        HashCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(2);
+        assertThat(stats.misses()).isEqualTo(3);
+        assertThat(stats.bytesSaved()).isEqualTo(2L * first.length);
+        assertThat(stats.hitRate()).isEqualTo(0.4);
+    }
+
+    @Test
+    public void testEviction()
+    {
+        // a single slot, so every distinct key evicts the previous one
+        HashCache cache = new HashCache(1);
+        byte[] first = new byte[100];
+        byte[] second = new byte[100];
+
+        cache.hash64(first, 0, 100);
+        cache.hash64(second, 0, 100);
+        cache.hash64(first, 0, 100);
+        cache.hash64(first, 0, 100);
+
+        HashCache.Stats stats = cache.stats();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(3);
+        assertThat(stats.evictions()).isEqualTo(2);
+    }
+
+    @Test
+    public void testEstimatedSavings()
+    {
+        HashCache cache = new HashCache(16);
+        byte[] data = new byte[100_000];
+
+        // enough misses that some are timed
+        for (int i = 0; i < 10_000; i++) {
+            cache.hash64(data, i, 1000);
+        }
+        for (int i = 0; i < 100; i++) {
+            cache.hash64(data, 9999, 1000);
+        }
+
+        HashCache.Stats stats = cache.stats();
+        assertThat(stats.bytesSaved()).isEqualTo(100 * 1000);
+        assertThat(stats.estimatedNanosSaved()).isPositive();
+    }
+}
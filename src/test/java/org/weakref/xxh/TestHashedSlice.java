@@ -0,0 +1,85 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestHashedSlice
+{
+    @Test
+    public void testEquality()
+    {
+        Random random = new Random(0);
+        try (Arena arena = Arena.ofConfined()) {
+            for (int length : new int[] {0, 1, 16, 240, 241, 10_000}) {
+                byte[] data = new byte[length + 10];
+                random.nextBytes(data);
+
+                MemorySegment nativeCopy = arena.allocate(Math.max(1, length)).asSlice(0, length);
+                MemorySegment.copy(data, 5, nativeCopy, JAVA_BYTE, 0, length);
+
+                HashedSlice heap = HashedSlice.wrap(data, 5, length);
+                HashedSlice offHeap = HashedSlice.wrap(nativeCopy);
+                assertThat(heap).isEqualTo(offHeap);
+                assertThat(offHeap).isEqualTo(heap);
+                assertThat(heap.hashCode()).isEqualTo(offHeap.hashCode());
+                assertThat(heap.hash64()).isEqualTo(Xxh3.hash64(data, 5, length));
+                assertThat(heap.length()).isEqualTo(length);
+
+                if (length > 0) {
+                    nativeCopy.set(JAVA_BYTE, length - 1, (byte) (nativeCopy.get(JAVA_BYTE, length - 1) + 1));
+                    assertThat(heap).isNotEqualTo(HashedSlice.wrap(nativeCopy));
+                }
+                assertThat(heap).isNotEqualTo(HashedSlice.wrap(data, 5, length + 1));
+            }
+        }
+    }
+
+    @Test
+    public void testZeroHashIsCached()
+    {
+        AtomicInteger calls = new AtomicInteger();
+        HashedSlice slice = new HashedSlice(MemorySegment.ofArray(new byte[] {1, 2, 3}), segment -> {
+            calls.incrementAndGet();
+            return 0;
+        });
+
+        assertThat(slice.hash64()).isEqualTo(0);
+        assertThat(slice.hash64()).isEqualTo(0);
+        assertThat(slice.hashCode()).isEqualTo(0);
+        assertThat(calls).hasValue(1);
+    }
+
+    @Test
+    public void testHashIsCached()
+    {
+        AtomicInteger calls = new AtomicInteger();
+        HashedSlice slice = new HashedSlice(MemorySegment.ofArray(new byte[] {1, 2, 3}), segment -> {
+            calls.incrementAndGet();
+            return 42;
+        });
+
+        assertThat(slice.hash64()).isEqualTo(42);
+        assertThat(slice.hash64()).isEqualTo(42);
+        assertThat(calls).hasValue(1);
+    }
+}
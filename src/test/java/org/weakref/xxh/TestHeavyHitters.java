@@ -0,0 +1,113 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestHeavyHitters
+{
+    private static final int KEYS = 10_000;
+
+    @Test
+    public void testConcurrent()
+            throws Exception
+    {
+        HeavyHitters heavyHitters = new HeavyHitters(10, 4, 1 << 14);
+
+        // key i occurs (KEYS / (i + 1)) times per thread, so keys 0..9 are the leaders
+        int threads = 8;
+        long[] expected = new long[KEYS];
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < threads; thread++) {
+                int seed = thread;
+                futures.add(executor.submit(() -> {
+                    List<Integer> occurrences = new ArrayList<>();
+                    for (int key = 0; key < KEYS; key++) {
+                        for (int i = 0; i < KEYS / (key + 1); i++) {
+                            occurrences.add(key);
+                        }
+                    }
+                    Collections.shuffle(occurrences, new Random(seed));
+                    for (int key : occurrences) {
+                        byte[] bytes = key(key);
+                        heavyHitters.add(bytes, 0, bytes.length);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+        for (int key = 0; key < KEYS; key++) {
+            expected[key] = (long) threads * (KEYS / (key + 1));
+        }
+
+        for (int key = 0; key < KEYS; key++) {
+            byte[] bytes = key(key);
+            assertThat(heavyHitters.estimate(bytes, 0, bytes.length)).isGreaterThanOrEqualTo(expected[key]);
+        }
+
+        List<HeavyHitters.HeavyHitter> top = heavyHitters.topK();
+        assertThat(top).hasSize(10);
+        assertThat(top.stream().map(hitter -> new String(hitter.key(), UTF_8)).collect(Collectors.toSet()))
+                .isEqualTo(Set.of("key-0", "key-1", "key-2", "key-3", "key-4", "key-5", "key-6", "key-7", "key-8", "key-9"));
+        assertThat(top.get(0).count()).isGreaterThanOrEqualTo(expected[0]);
+        assertThat(new String(top.get(0).key(), UTF_8)).isEqualTo("key-0");
+    }
+
+    @Test
+    public void testBatch()
+    {
+        CountMinSketch single = new CountMinSketch(5, 1024, 1);
+        CountMinSketch batch = new CountMinSketch(5, 1024, 1);
+
+        Random random = new Random(0);
+        byte[] slab = new byte[100_000];
+        random.nextBytes(slab);
+        int[] offsets = new int[5001];
+        for (int i = 1; i < offsets.length; i++) {
+            offsets[i] = offsets[i - 1] + random.nextInt(20);
+        }
+
+        for (int i = 0; i < 5000; i++) {
+            single.add(slab, offsets[i], offsets[i + 1] - offsets[i]);
+        }
+        batch.add(slab, offsets, 5000);
+
+        assertThat(batch.totalCount()).isEqualTo(5000);
+        for (int i = 0; i < 5000; i++) {
+            assertThat(batch.estimate(slab, offsets[i], offsets[i + 1] - offsets[i]))
+                    .isEqualTo(single.estimate(slab, offsets[i], offsets[i + 1] - offsets[i]));
+        }
+    }
+
+    private static byte[] key(int key)
+    {
+        return ("key-" + key).getBytes(UTF_8);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import com.google.common.hash.Hashing;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static jdk.incubator.vector.LongVector.SPECIES_PREFERRED;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.weakref.xxh.Constants.PRIME_MX1;
+import static org.weakref.xxh.Util.avalanche;
+
+public class TestRouting
+{
+    @Test
+    public void testJumpHash()
+    {
+        SplittableRandom random = new SplittableRandom(0);
+        for (int i = 0; i < 1_000_000; i++) {
+            long hash = random.nextLong();
+            int buckets = 1 + random.nextInt(i % 2 == 0 ? 1000 : Integer.MAX_VALUE);
+            assertThat(JumpHash.bucket(hash, buckets))
+                    .describedAs("Hash: %d, Buckets: %d", hash, buckets)
+                    .isEqualTo(Hashing.consistentHash(hash, buckets));
+        }
+    }
+
+    @Test
+    public void testJumpHashMinimalMovement()
+    {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < 10_000; i++) {
+            long hash = random.nextLong();
+            for (int buckets = 1; buckets < 100; buckets++) {
+                int before = JumpHash.bucket(hash, buckets);
+                int after = JumpHash.bucket(hash, buckets + 1);
+                assertThat(after).isIn(before, buckets);
+            }
+        }
+    }
+
+    @Test
+    public void testRendezvousRouter()
+    {
+        SplittableRandom random = new SplittableRandom(2);
+
+        // node counts below, at and between multiples of the lane count exercise the scalar tail
+        for (int count = 1; count <= 4 * SPECIES_PREFERRED.length() + 3; count++) {
+            List<String> nodes = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                nodes.add("node-" + i);
+            }
+            RendezvousRouter router = new RendezvousRouter(nodes);
+
+            long[] hashes = new long[1000];
+            int[] result = new int[hashes.length];
+            for (int i = 0; i < hashes.length; i++) {
+                hashes[i] = random.nextLong();
+            }
+            router.route(hashes, result);
+
+            for (int i = 0; i < hashes.length; i++) {
+                int expected = scalarRoute(nodes, hashes[i]);
+                assertThat(router.route(hashes[i]))
+                        .describedAs("Nodes: %d, Hash: %d", count, hashes[i])
+                        .isEqualTo(expected);
+                assertThat(result[i]).isEqualTo(expected);
+            }
+        }
+    }
+
+    @Test
+    public void testRendezvousRouterMinimumScore()
+    {
+        // identical nodes all score Long.MIN_VALUE for this key, so no lane ever improves on the initial best
+        List<String> nodes = Collections.nCopies(SPECIES_PREFERRED.length(), "node");
+        long hash = inverseAvalanche(Long.MIN_VALUE) ^ seed("node");
+        assertThat(avalanche(hash ^ seed("node"))).isEqualTo(Long.MIN_VALUE);
+
+        assertThat(new RendezvousRouter(nodes).route(hash)).isEqualTo(0);
+    }
+
+    private static int scalarRoute(List<String> nodes, long hash)
+    {
+        int best = 0;
+        for (int i = 1; i < nodes.size(); i++) {
+            if (avalanche(hash ^ seed(nodes.get(i))) > avalanche(hash ^ seed(nodes.get(best)))) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private static long seed(String node)
+    {
+        byte[] name = node.getBytes(UTF_8);
+        return Xxh3.hash64(name, 0, name.length);
+    }
+
+    private static long inverseAvalanche(long value)
+    {
+        // both xor-shifts are at least half the word, so each is its own inverse
+        value ^= value >>> 32;
+        long inverse = PRIME_MX1;
+        for (int i = 0; i < 5; i++) {
+            inverse *= 2 - PRIME_MX1 * inverse;
+        }
+        value *= inverse;
+        return value ^ (value >>> 37);
+    }
+}
@@ -16,7 +16,12 @@ import org.assertj.core.presentation.HexadecimalRepresentation;
 import org.junit.jupiter.api.Test;
 
 import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.Random;
 
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class TestXxh3
@@ -38,6 +43,162 @@ public class TestXxh3
         }
     }
 
+    @Test
+    public void test128()
+    {
+        byte[] input = new byte[10000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i * 0x9E3779B1L);
+        }
+
+        for (int offset : new int[] {0, 57}) {
+            for (int length = 0; length < input.length - offset; length++) {
+                assertThat(Xxh3.hash128(input, offset, length))
+                        .describedAs("Offset: %d, Length: %d", offset, length)
+                        .isEqualTo(XxhNative.xxh128(MemorySegment.ofArray(input).asSlice(offset, length)));
+            }
+        }
+    }
+
+    @Test
+    public void testIncremental()
+    {
+        Random random = new Random(0);
+        byte[] input = new byte[10000];
+        random.nextBytes(input);
+
+        for (int i = 0; i < 10000; i++) {
+            int length = random.nextInt(input.length);
+            Xxh3Hasher hasher = new Xxh3Hasher();
+            int position = 0;
+            while (position < length) {
+                int chunk = Math.min(length - position, random.nextInt(random.nextBoolean() ? 100 : 2000));
+                hasher.update(input, position, chunk);
+                position += chunk;
+            }
+
+            assertThat(hasher.digest())
+                    .withRepresentation(new HexadecimalRepresentation())
+                    .describedAs("Length: %d", length)
+                    .isEqualTo(XxhNative.xxh3(MemorySegment.ofArray(input).asSlice(0, length)));
+        }
+    }
+
+    @Test
+    public void testFixed()
+    {
+        Random random = new Random(0);
+        for (int keyLength = 0; keyLength <= 256; keyLength++) {
+            for (int count : new int[] {0, 1, 7, 64, 101}) {
+                byte[] slab = new byte[keyLength * count];
+                random.nextBytes(slab);
+
+                long[] result = new long[count];
+                Xxh3.hashFixed(slab, keyLength, count, result);
+                for (int i = 0; i < count; i++) {
+                    assertThat(result[i])
+                            .withRepresentation(new HexadecimalRepresentation())
+                            .describedAs("Key length: %d, Count: %d, Key: %d", keyLength, count, i)
+                            .isEqualTo(Xxh3.hash64(slab, i * keyLength, keyLength));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testStrings()
+    {
+        Random random = new Random(0);
+        int[] alphabets = {0x80, 0x100, 0x800, 0x10000};
+        for (int i = 0; i < 10000; i++) {
+            int alphabet = alphabets[random.nextInt(alphabets.length)];
+            char[] chars = new char[random.nextInt(i < 9000 ? 300 : 5000)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) random.nextInt(alphabet);
+            }
+            String value = new String(chars);
+
+            byte[] utf8 = value.getBytes(UTF_8);
+            assertThat(Xxh3.hashString(value))
+                    .describedAs("Length: %d, Alphabet: %d", chars.length, alphabet)
+                    .isEqualTo(Xxh3.hash64(utf8, 0, utf8.length));
+            assertThat(Xxh3.hashUtf8(new StringBuilder(value)))
+                    .describedAs("Length: %d, Alphabet: %d", chars.length, alphabet)
+                    .isEqualTo(Xxh3.hash64(utf8, 0, utf8.length));
+
+            // unpaired surrogates are hashed as is, while getBytes would replace them
+            byte[] utf16 = new byte[2 * chars.length];
+            for (int j = 0; j < chars.length; j++) {
+                utf16[2 * j] = (byte) chars[j];
+                utf16[2 * j + 1] = (byte) (chars[j] >>> 8);
+            }
+            assertThat(Xxh3.hashChars(value))
+                    .describedAs("Length: %d, Alphabet: %d", chars.length, alphabet)
+                    .isEqualTo(Xxh3.hash64(utf16, 0, utf16.length));
+        }
+
+        // long enough to be streamed in chunks
+        char[] chars = new char[100_003];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) random.nextInt(0xD800);
+        }
+        String value = new String(chars);
+        byte[] utf16 = value.getBytes(UTF_16LE);
+        assertThat(Xxh3.hashChars(value)).isEqualTo(Xxh3.hash64(utf16, 0, utf16.length));
+        assertThat(Xxh3.hashChars(new StringBuilder(value))).isEqualTo(Xxh3.hash64(utf16, 0, utf16.length));
+    }
+
+    @Test
+    public void testPrimitiveArrays()
+    {
+        Random random = new Random(0);
+        long[] longs = new long[2000];
+        double[] doubles = new double[2000];
+        int[] ints = new int[4000];
+        char[] chars = new char[8000];
+        for (int i = 0; i < longs.length; i++) {
+            longs[i] = random.nextLong();
+            doubles[i] = Double.longBitsToDouble(random.nextLong());
+        }
+        for (int i = 0; i < ints.length; i++) {
+            ints[i] = random.nextInt();
+        }
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) random.nextInt();
+        }
+
+        for (int offset : new int[] {0, 3}) {
+            for (int count = 0; count < longs.length - offset; count++) {
+                ByteBuffer buffer = ByteBuffer.allocate(count * Long.BYTES).order(LITTLE_ENDIAN);
+                buffer.asLongBuffer().put(longs, offset, count);
+                assertThat(Xxh3.hash64(longs, offset, count))
+                        .describedAs("Offset: %d, Count: %d", offset, count)
+                        .isEqualTo(Xxh3.hash64(buffer.array(), 0, buffer.capacity()));
+
+                buffer.asDoubleBuffer().put(doubles, offset, count);
+                assertThat(Xxh3.hash64(doubles, offset, count))
+                        .describedAs("Offset: %d, Count: %d", offset, count)
+                        .isEqualTo(Xxh3.hash64(buffer.array(), 0, buffer.capacity()));
+            }
+
+            for (int count = 0; count < ints.length - offset; count++) {
+                ByteBuffer buffer = ByteBuffer.allocate(count * Integer.BYTES).order(LITTLE_ENDIAN);
+                buffer.asIntBuffer().put(ints, offset, count);
+                assertThat(Xxh3.hash64(ints, offset, count))
+                        .describedAs("Offset: %d, Count: %d", offset, count)
+                        .isEqualTo(Xxh3.hash64(buffer.array(), 0, buffer.capacity()));
+            }
+
+            for (int count = 0; count < chars.length - offset; count++) {
+                ByteBuffer buffer = ByteBuffer.allocate(count * Character.BYTES).order(LITTLE_ENDIAN);
+                buffer.asCharBuffer().put(chars, offset, count);
+                assertThat(Xxh3.hash64(chars, offset, count))
+                        .describedAs("Offset: %d, Count: %d", offset, count)
+                        .isEqualTo(Xxh3.hash64(buffer.array(), 0, buffer.capacity()));
+            }
+        }
+    }
+
     private void verifyEqual(byte[] input, int offset, int length)
     {
         assertThat(Xxh3.hash64(input, offset, length))
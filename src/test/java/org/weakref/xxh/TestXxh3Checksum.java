@@ -0,0 +1,156 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+import org.weakref.xxh.Xxh3Checksum.Entry;
+import org.weakref.xxh.Xxh3Checksum.Result;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestXxh3Checksum
+{
+    @Test
+    public void testManifestRoundTrip()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("checksum");
+        try {
+            Path manifest = directory.resolve("manifest");
+            Map<String, Entry> entries = Map.of(
+                    "a", new Entry(0, FileTime.from(Instant.parse("2024-01-02T03:04:05.123456789Z")), 0),
+                    "dir/with space\tand tab", new Entry(123, FileTime.fromMillis(1_700_000_000_123L), -1),
+                    "b", new Entry(Long.MAX_VALUE, FileTime.from(Instant.EPOCH), 0x0123456789ABCDEFL));
+
+            Xxh3Checksum.writeManifest(manifest, entries);
+            assertThat(Xxh3Checksum.readManifest(manifest)).isEqualTo(entries);
+            assertThat(Files.exists(manifest.resolveSibling("manifest.tmp"))).isFalse();
+        }
+        finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void testMalformedManifest()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("checksum");
+        try {
+            Path manifest = directory.resolve("manifest");
+            Files.writeString(manifest, "00000000000000ff\t10\t1700000000123\tfile\n", UTF_8);
+
+            assertThatThrownBy(() -> Xxh3Checksum.readManifest(manifest))
+                    .isInstanceOf(IOException.class);
+        }
+        finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void testRun()
+            throws IOException, InterruptedException
+    {
+        Path directory = Files.createTempDirectory("checksum");
+        try {
+            Path manifest = directory.resolve("manifest");
+            Files.createDirectories(directory.resolve("nested"));
+            byte[] data = new byte[10_000];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (i * 31);
+            }
+            Files.write(directory.resolve("data"), data);
+            Files.write(directory.resolve("empty"), new byte[0]);
+            Files.writeString(directory.resolve("nested/text"), "hello", UTF_8);
+
+            Result result = Xxh3Checksum.run(directory, manifest, 2);
+            assertThat(result.files()).isEqualTo(3);
+            assertThat(result.hashed()).isEqualTo(3);
+            assertThat(result.skipped()).isEqualTo(0);
+            assertThat(result.bytesHashed()).isEqualTo(10_005);
+
+            Map<String, Entry> entries = Xxh3Checksum.readManifest(manifest);
+            assertThat(entries.keySet()).isEqualTo(Set.of("data", "empty", "nested/text"));
+            assertThat(entries.get("data").hash()).isEqualTo(Xxh3.hash64(data, 0, data.length));
+            assertThat(entries.get("nested/text").hash()).isEqualTo(Xxh3.hash64("hello".getBytes(UTF_8), 0, 5));
+
+            // unchanged files are skipped, and a leftover temporary manifest is not checksummed
+            Files.writeString(directory.resolve("manifest.tmp"), "partial", UTF_8);
+            result = Xxh3Checksum.run(directory, manifest, 2);
+            assertThat(result.files()).isEqualTo(3);
+            assertThat(result.hashed()).isEqualTo(0);
+            assertThat(result.skipped()).isEqualTo(3);
+            assertThat(Xxh3Checksum.readManifest(manifest)).isEqualTo(entries);
+
+            // same size, modification time differing only below a millisecond
+            Path text = directory.resolve("nested/text");
+            FileTime lastModified = Files.getLastModifiedTime(text);
+            Files.writeString(text, "world", UTF_8);
+            Files.setLastModifiedTime(text, FileTime.from(lastModified.toInstant().plusNanos(1_000)));
+            Files.delete(directory.resolve("empty"));
+
+            result = Xxh3Checksum.run(directory, manifest, 2);
+            assertThat(result.files()).isEqualTo(2);
+            assertThat(result.hashed()).isEqualTo(1);
+            assertThat(result.skipped()).isEqualTo(1);
+            entries = Xxh3Checksum.readManifest(manifest);
+            assertThat(entries.keySet()).isEqualTo(Set.of("data", "nested/text"));
+            assertThat(entries.get("nested/text").hash()).isEqualTo(Xxh3.hash64("world".getBytes(UTF_8), 0, 5));
+        }
+        finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    @Test
+    public void testVanishedFile()
+            throws IOException
+    {
+        Path directory = Files.createTempDirectory("checksum");
+        try {
+            Path file = directory.resolve("missing");
+            assertThat(Xxh3Checksum.checksum(file, null)).isNull();
+            assertThat(Xxh3Checksum.checksum(file, new Entry(0, FileTime.fromMillis(0), 0))).isNull();
+        }
+        finally {
+            deleteRecursively(directory);
+        }
+    }
+
+    private static void deleteRecursively(Path directory)
+            throws IOException
+    {
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(directory)) {
+            paths = stream.sorted(Comparator.reverseOrder()).toList();
+        }
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+}
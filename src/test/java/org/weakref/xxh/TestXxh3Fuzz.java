@@ -0,0 +1,100 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.assertj.core.presentation.HexadecimalRepresentation;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
+import java.util.Random;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares every entry point and kernel against native XXH3 on random offsets, lengths and
+ * contents. The seed is fixed so that runs are reproducible; pass a different one with
+ * {@code -Dxxh.fuzz.seed} to explore other inputs, and set the iteration count with
+ * {@code -Dxxh.fuzz.iterations}. Failures report the seed so they can be replayed.
+ */
+public class TestXxh3Fuzz
+{
+    private static final int MAX_LENGTH = 1 << 20;
+
+    @Test
+    public void test()
+    {
+        long seed = Long.getLong("xxh.fuzz.seed", 0);
+        int iterations = Integer.getInteger("xxh.fuzz.iterations", 10_000);
+        Random random = new Random(seed);
+
+        byte[] buffer = new byte[MAX_LENGTH + 64];
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment offHeap = arena.allocate(buffer.length);
+
+            for (int i = 0; i < iterations; i++) {
+                if (i % 1000 == 0) {
+                    fill(random, buffer);
+                    MemorySegment.copy(buffer, 0, offHeap, JAVA_BYTE, 0, buffer.length);
+                }
+
+                int offset = random.nextInt(64);
+                // log-uniform, so short and midsize inputs are exercised as often as long ones
+                int length = (int) Math.min(MAX_LENGTH, Math.exp(random.nextDouble() * Math.log(MAX_LENGTH + 1)) - 1);
+                String description = "Seed: %d, Iteration: %d, Offset: %d, Length: %d".formatted(seed, i, offset, length);
+
+                MemorySegment slice = MemorySegment.ofArray(buffer).asSlice(offset, length);
+                long expected = XxhNative.xxh3(slice);
+
+                assertHash(Xxh3.hash64(buffer, offset, length), expected, description);
+                assertHash(Xxh3.hash64(offHeap.asSlice(offset, length)), expected, description);
+                assertThat(Xxh3.hash128(buffer, offset, length))
+                        .describedAs(description)
+                        .isEqualTo(XxhNative.xxh128(slice));
+
+                if (length > 240) {
+                    assertHash(LongHashScalar.hash(buffer, offset, length), expected, description);
+                    assertHash(LongHashUnrolled.hash(buffer, offset, length), expected, description);
+                    assertHash(LongHashVector.hash(buffer, offset, length), expected, description);
+                }
+            }
+        }
+    }
+
+    private static void fill(Random random, byte[] buffer)
+    {
+        switch (random.nextInt(4)) {
+            case 0 -> Arrays.fill(buffer, (byte) 0);
+            case 1 -> Arrays.fill(buffer, (byte) 0xFF);
+            case 2 -> {
+                // sparse: mostly zeros with a few random bytes
+                Arrays.fill(buffer, (byte) 0);
+                for (int i = 0; i < buffer.length / 100; i++) {
+                    buffer[random.nextInt(buffer.length)] = (byte) random.nextInt();
+                }
+            }
+            default -> random.nextBytes(buffer);
+        }
+    }
+
+    private static void assertHash(long actual, long expected, String description)
+    {
+        assertThat(actual)
+                .withRepresentation(new HexadecimalRepresentation())
+                .describedAs(description)
+                .isEqualTo(expected);
+    }
+}
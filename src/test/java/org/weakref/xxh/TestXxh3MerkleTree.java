@@ -0,0 +1,123 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+
+import static java.nio.ByteOrder.LITTLE_ENDIAN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.weakref.xxh.Xxh3MerkleTree.Range;
+
+public class TestXxh3MerkleTree
+{
+    @Test
+    public void testUpdateAndDiff()
+    {
+        Random random = new Random(0);
+        for (int size : new int[] {0, 1, 100, 4096, 100_000, 1 << 20}) {
+            byte[] data = new byte[size];
+            random.nextBytes(data);
+            MemorySegment segment = MemorySegment.ofArray(data);
+
+            Xxh3MerkleTree original = Xxh3MerkleTree.build(segment, 1000);
+            Xxh3MerkleTree updated = Xxh3MerkleTree.build(segment, 1000);
+            assertThat(updated.root()).isEqualTo(original.root());
+            assertThat(updated.diff(original)).isEmpty();
+
+            if (size < 5000) {
+                continue;
+            }
+
+            // two changes in adjacent leaves and one far away
+            data[1999]++;
+            data[2000]++;
+            data[size - 1]++;
+            updated.update(segment, 1999, 2);
+            updated.update(segment, size - 1, 1);
+
+            Xxh3MerkleTree rebuilt = Xxh3MerkleTree.build(segment, 1000);
+            assertThat(updated.root()).isEqualTo(rebuilt.root());
+            assertThat(updated.root()).isNotEqualTo(original.root());
+
+            long lastLeaf = (size - 1) / 1000 * 1000L;
+            assertThat(updated.diff(original))
+                    .isEqualTo(List.of(new Range(1000, 2000), new Range(lastLeaf, size - lastLeaf)));
+        }
+    }
+
+    @Test
+    public void testSerialize()
+    {
+        byte[] data = new byte[123_457];
+        new Random(1).nextBytes(data);
+        Xxh3MerkleTree tree = Xxh3MerkleTree.build(MemorySegment.ofArray(data), 4096);
+
+        Xxh3MerkleTree copy = Xxh3MerkleTree.deserialize(tree.serialize());
+        assertThat(copy.root()).isEqualTo(tree.root());
+        assertThat(copy.leafCount()).isEqualTo(tree.leafCount());
+        assertThat(copy.dataSize()).isEqualTo(tree.dataSize());
+        assertThat(copy.diff(tree)).isEmpty();
+    }
+
+    @Test
+    public void testUpdateOutOfBounds()
+    {
+        MemorySegment data = MemorySegment.ofArray(new byte[10_000]);
+        Xxh3MerkleTree tree = Xxh3MerkleTree.build(data, 1024);
+
+        assertThatThrownBy(() -> tree.update(data, -1, 10))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> tree.update(data, 9_990, 11))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> tree.update(data, 0, -1))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+        assertThatThrownBy(() -> tree.update(data, 10_001, 0))
+                .isInstanceOf(IndexOutOfBoundsException.class);
+
+        tree.update(data, 10_000, 0);
+        assertThat(tree.root()).isEqualTo(Xxh3MerkleTree.build(data, 1024).root());
+    }
+
+    @Test
+    public void testDeserializeCorrupt()
+    {
+        byte[] serialized = Xxh3MerkleTree.build(MemorySegment.ofArray(new byte[10_000]), 1024).serialize();
+
+        assertThatThrownBy(() -> Xxh3MerkleTree.deserialize(withHeader(serialized, 0, 10_000)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Xxh3MerkleTree.deserialize(withHeader(serialized, -1024, 10_000)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Xxh3MerkleTree.deserialize(withHeader(serialized, 1024, -1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Xxh3MerkleTree.deserialize(withHeader(serialized, 1, Long.MAX_VALUE)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Xxh3MerkleTree.deserialize(withHeader(serialized, 1024, 20_000)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static byte[] withHeader(byte[] serialized, int leafSize, long dataSize)
+    {
+        byte[] copy = serialized.clone();
+        ByteBuffer.wrap(copy).order(LITTLE_ENDIAN)
+                .putInt(Integer.BYTES, leafSize)
+                .putLong(2 * Integer.BYTES, dataSize);
+        return copy;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.weakref.xxh.Xxh3Metrics.LatencyHistogram;
+import static org.weakref.xxh.Xxh3Metrics.SizeClass;
+
+public class TestXxh3Metrics
+{
+    @Test
+    public void testHistogramBuckets()
+    {
+        // every value maps to a bucket whose upper bound is within 1/32 above it
+        Random random = new Random(0);
+        for (int i = 0; i < 1_000_000; i++) {
+            long value = i < 10_000 ? i : (random.nextLong() >>> 1) >>> random.nextInt(63);
+            long highest = LatencyHistogram.highestValue(LatencyHistogram.index(value));
+            assertThat(highest)
+                    .describedAs("Value: %d", value)
+                    .isGreaterThanOrEqualTo(value);
+            assertThat(highest - value)
+                    .describedAs("Value: %d", value)
+                    .isLessThanOrEqualTo(value / 32);
+        }
+
+        assertThat(LatencyHistogram.index(Long.MAX_VALUE)).isLessThan((Long.SIZE - 5 + 1) * 32);
+        assertThat(LatencyHistogram.highestValue(LatencyHistogram.index(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    @Test
+    public void testHistogramIndexIsMonotonic()
+    {
+        int previous = LatencyHistogram.index(0);
+        for (long value = 1; value < 1 << 20; value++) {
+            int index = LatencyHistogram.index(value);
+            assertThat(index).isBetween(previous, previous + 1);
+            assertThat(LatencyHistogram.highestValue(index - 1)).isLessThan(value);
+            previous = index;
+        }
+    }
+
+    @Test
+    public void testPercentiles()
+    {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertThat(histogram.percentile(0.5)).isEqualTo(0);
+        assertThat(histogram.max()).isEqualTo(0);
+
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        assertThat(histogram.count()).isEqualTo(1001);
+        assertThat(histogram.percentile(0.5)).isBetween(500L, 500L + 500 / 32);
+        assertThat(histogram.percentile(0.99)).isBetween(990L, 990L + 990 / 32);
+        assertThat(histogram.max()).isBetween(1000L, 1000L + 1000 / 32);
+
+        histogram.reset();
+        assertThat(histogram.count()).isEqualTo(0);
+    }
+
+    @Test
+    public void testSizeClasses()
+    {
+        assertThat(SizeClass.of(0)).isEqualTo(SizeClass.EMPTY);
+        assertThat(SizeClass.of(3)).isEqualTo(SizeClass.SIZE_1_TO_3);
+        assertThat(SizeClass.of(8)).isEqualTo(SizeClass.SIZE_4_TO_8);
+        assertThat(SizeClass.of(16)).isEqualTo(SizeClass.SIZE_9_TO_16);
+        assertThat(SizeClass.of(128)).isEqualTo(SizeClass.SIZE_17_TO_128);
+        assertThat(SizeClass.of(240)).isEqualTo(SizeClass.SIZE_129_TO_240);
+        assertThat(SizeClass.of(241)).isEqualTo(SizeClass.LONG);
+        assertThat(SizeClass.of(1L << 40)).isEqualTo(SizeClass.LONG);
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.assertj.core.presentation.HexadecimalRepresentation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.lang.foreign.ValueLayout.JAVA_LONG_UNALIGNED;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestXxh3Segment
+{
+    @Test
+    public void testSmall()
+    {
+        byte[] input = new byte[5000];
+        for (int i = 0; i < input.length; i++) {
+            input[i] = (byte) (i * 0x9E3779B1L);
+        }
+
+        try (Arena arena = Arena.ofConfined()) {
+            MemorySegment segment = arena.allocate(input.length);
+            MemorySegment.copy(MemorySegment.ofArray(input), 0, segment, 0, input.length);
+
+            for (int offset : new int[] {0, 57}) {
+                for (int length = 0; length < input.length - offset; length++) {
+                    assertThat(Xxh3.hash64(segment, offset, length))
+                            .withRepresentation(new HexadecimalRepresentation())
+                            .describedAs("Offset: %d, Length: %d", offset, length)
+                            .isEqualTo(Xxh3.hash64(input, offset, length));
+                    assertThat(Xxh3.hash128(segment, offset, length))
+                            .describedAs("Offset: %d, Length: %d", offset, length)
+                            .isEqualTo(Xxh3.hash128(input, offset, length));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testHeapSegments()
+    {
+        long[] values = new long[625];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 0x9E3779B97F4A7C15L;
+        }
+        byte[] input = new byte[values.length * Long.BYTES];
+        MemorySegment.copy(MemorySegment.ofArray(values), 0, MemorySegment.ofArray(input), 0, input.length);
+
+        // only writable byte[] segments reach the array kernel directly
+        MemorySegment[] segments = {
+                MemorySegment.ofArray(values),
+                MemorySegment.ofArray(values).asReadOnly(),
+                MemorySegment.ofArray(input).asReadOnly()};
+        for (MemorySegment segment : segments) {
+            for (int offset : new int[] {0, 57}) {
+                for (int length = 0; length < input.length - offset; length++) {
+                    assertThat(Xxh3.hash64(segment, offset, length))
+                            .withRepresentation(new HexadecimalRepresentation())
+                            .describedAs("Segment: %s, Offset: %d, Length: %d", segment, offset, length)
+                            .isEqualTo(Xxh3.hash64(input, offset, length));
+                    assertThat(Xxh3.hash128(segment, offset, length))
+                            .describedAs("Segment: %s, Offset: %d, Length: %d", segment, offset, length)
+                            .isEqualTo(Xxh3.hash128(input, offset, length));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes a 4 GB temp file, so it only runs with {@code -Dxxh.test.large=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "xxh.test.large", matches = "true")
+    public void testBeyondIntRange()
+            throws IOException
+    {
+        long size = (4L << 30) + 1000;
+
+        // a mapped file keeps the test within reach of machines with less free memory than the input
+        Path file = Files.createTempFile("xxh3", ".bin");
+        try (Arena arena = Arena.ofConfined(); FileChannel channel = FileChannel.open(file, READ, WRITE)) {
+            MemorySegment segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            for (long i = 0; i < size; i += Long.BYTES) {
+                segment.set(JAVA_LONG_UNALIGNED, i, i * 0x9E3779B97F4A7C15L);
+            }
+
+            long[] lengths = {
+                    Integer.MAX_VALUE,
+                    1L << 31,
+                    (1L << 31) + 1,
+                    (1L << 32) - 1,
+                    1L << 32,
+                    (1L << 32) + 1,
+                    size};
+            for (long length : lengths) {
+                verifyEqual(segment, 0, length);
+            }
+            verifyEqual(segment, 3, size - 3);
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    private void verifyEqual(MemorySegment segment, long offset, long length)
+    {
+        assertThat(Xxh3.hash64(segment, offset, length))
+                .withRepresentation(new HexadecimalRepresentation())
+                .describedAs("Offset: %d, Length: %d", offset, length)
+                .isEqualTo(XxhNative.xxh3(segment.asSlice(offset, length)));
+        assertThat(Xxh3.hash128(segment, offset, length))
+                .describedAs("Offset: %d, Length: %d", offset, length)
+                .isEqualTo(XxhNative.xxh128(segment.asSlice(offset, length)));
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.weakref.xxh;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.foreign.ValueLayout.JAVA_BYTE;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestXxh3Service
+{
+    private static final int STREAMS = 10_000;
+    private static final int MAX_STREAM_LENGTH = 64 * 1024;
+
+    @Test
+    public void testConcurrentStreams()
+    {
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+        try (Xxh3Service service = new Xxh3Service()) {
+            for (int i = 0; i < STREAMS; i++) {
+                results.add(service.submit(new StubChannel(i)));
+            }
+
+            for (int i = 0; i < STREAMS; i++) {
+                byte[] expected = StubChannel.contents(i);
+                assertThat(results.get(i).join())
+                        .describedAs("Stream: %d", i)
+                        .isEqualTo(Xxh3.hash64(expected, 0, expected.length));
+            }
+        }
+    }
+
+    @Test
+    public void testSegments()
+    {
+        Random random = new Random(0);
+        try (Xxh3Service service = new Xxh3Service(4, 1000); Arena arena = Arena.ofShared()) {
+            List<byte[]> inputs = new ArrayList<>();
+            List<CompletableFuture<Long>> results = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                byte[] data = new byte[random.nextInt(i % 10 == 0 ? 100_000 : 300)];
+                random.nextBytes(data);
+                inputs.add(data);
+
+                if (i % 2 == 0) {
+                    results.add(service.submit(MemorySegment.ofArray(data)));
+                }
+                else {
+                    MemorySegment segment = arena.allocate(Math.max(1, data.length)).asSlice(0, data.length);
+                    MemorySegment.copy(data, 0, segment, JAVA_BYTE, 0, data.length);
+                    results.add(service.submit(segment));
+                }
+            }
+
+            for (int i = 0; i < inputs.size(); i++) {
+                byte[] expected = inputs.get(i);
+                assertThat(results.get(i).join())
+                        .describedAs("Input: %d", i)
+                        .isEqualTo(Xxh3.hash64(expected, 0, expected.length));
+            }
+        }
+    }
+
+    @Test
+    public void testHashingConcurrencyIsCapped()
+    {
+        int maxConcurrentHashing = 3;
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+
+        Xxh3Service.Updater updater = (hasher, data, offset, length) -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            try {
+                // hold the permit long enough for other jobs to pile up behind it
+                Thread.sleep(1);
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+            hasher.update(data, offset, length);
+            active.decrementAndGet();
+        };
+
+        List<CompletableFuture<Long>> results = new ArrayList<>();
+        try (Xxh3Service service = new Xxh3Service(maxConcurrentHashing, 1024, updater)) {
+            for (int i = 0; i < 100; i++) {
+                if (i % 2 == 0) {
+                    results.add(service.submit(MemorySegment.ofArray(StubChannel.contents(i))));
+                }
+                else {
+                    results.add(service.submit(new StubChannel(i)));
+                }
+            }
+
+            for (int i = 0; i < results.size(); i++) {
+                byte[] expected = StubChannel.contents(i);
+                assertThat(results.get(i).join()).isEqualTo(Xxh3.hash64(expected, 0, expected.length));
+            }
+        }
+
+        assertThat(maxActive.get()).isEqualTo(maxConcurrentHashing);
+    }
+
+    /**
+     * Simulates a slow network peer: returns short reads of deterministic content and
+     * occasionally stalls.
+     */
+    private static class StubChannel
+            implements ReadableByteChannel
+    {
+        private final Random random;
+        private final byte[] contents;
+        private int position;
+
+        public StubChannel(int seed)
+        {
+            this.contents = contents(seed);
+            this.random = new Random(~seed);
+        }
+
+        public static byte[] contents(int seed)
+        {
+            Random random = new Random(seed);
+            byte[] data = new byte[random.nextInt(MAX_STREAM_LENGTH)];
+            random.nextBytes(data);
+            return data;
+        }
+
+        @Override
+        public int read(ByteBuffer destination)
+        {
+            if (position == contents.length) {
+                return -1;
+            }
+
+            if (random.nextInt(16) == 0) {
+                try {
+                    Thread.sleep(1);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(e);
+                }
+            }
+
+            int length = Math.min(Math.min(destination.remaining(), contents.length - position), 1 + random.nextInt(4096));
+            destination.put(contents, position, length);
+            position += length;
+            return length;
+        }
+
+        @Override
+        public boolean isOpen()
+        {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+}